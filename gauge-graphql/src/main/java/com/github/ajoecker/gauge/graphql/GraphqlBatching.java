@@ -0,0 +1,69 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.common.ExpectedValues;
+import com.github.ajoecker.gauge.services.common.Service;
+import com.google.gson.Gson;
+import com.thoughtworks.gauge.Step;
+import com.thoughtworks.gauge.Table;
+import com.thoughtworks.gauge.TableRow;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class GraphqlBatching extends Service<GraphqlConnector> {
+    private static final String FILE = "file:";
+    // a body starts with a quoted member name, whereas a document starts with a selection like { artists
+    private static final Pattern INLINE_BODY = Pattern.compile("\\{\\s*[\"'}]");
+
+    @Step({"When posting batch <queries>", "And posting batch <queries>"})
+    public void postingBatch(Object queries) {
+        connector().postBatch(queries(queries), authenticationHandler);
+    }
+
+    // the queries by their name, which is the column name of a table or else the index of the query
+    // test-friendly
+    static Map<String, String> queries(Object queries) {
+        Map<String, String> named = new LinkedHashMap<>();
+        if (queries instanceof Table) {
+            for (TableRow row : ((Table) queries).getTableRows()) {
+                String name = ((Table) queries).getColumnNames().contains("name") ? row.getCell("name") : "";
+                String query = query(row.getCell("query"));
+                if (named.putIfAbsent(name.isBlank() ? String.valueOf(named.size()) : name.trim(), query) != null) {
+                    throw new IllegalArgumentException("query " + name + " is given multiple times");
+                }
+            }
+        } else {
+            // an inline query contains commas itself, so that the list can only be split into query files
+            for (String file : ExpectedValues.split(queries.toString())) {
+                if (file.trim().startsWith("{")) {
+                    throw new IllegalArgumentException("inline query " + file + " cannot be given in a list, but only in a table");
+                }
+                named.put(String.valueOf(named.size()), query(file));
+            }
+        }
+        return named;
+    }
+
+    // a query like { "query": "{ artists { name } }" } or a plain document like { artists { name } }, which is sent as
+    // the query of a body, or else a query file like queries/artists.graphql, which may be prefixed with file:
+    private static String query(String query) {
+        String trimmed = query.trim();
+        if (INLINE_BODY.matcher(trimmed).lookingAt()) {
+            return trimmed;
+        }
+        if (trimmed.startsWith("{")) {
+            return new Gson().toJson(Map.of("query", trimmed));
+        }
+        String file = trimmed.startsWith(FILE) ? trimmed.substring(FILE.length()).trim() : trimmed;
+        try {
+            return Files.readString(Path.of(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read query file " + file, e);
+        }
+    }
+}
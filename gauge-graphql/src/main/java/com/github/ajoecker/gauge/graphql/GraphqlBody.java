@@ -0,0 +1,165 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.BoundedCache;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * The skeleton of the body of a graphql request, parsed once from a query file: the query document, which is sent as
+ * it is, the optional operation name and the variables, whose values may still contain variables like
+ * <code>%size%</code>.
+ * <p>
+ * A query file is either a json object with the member <code>query</code> and optionally <code>operationName</code> and
+ * <code>variables</code>, which is read leniently like single quoted strings, or a plain query document.
+ */
+final class GraphqlBody {
+    private static final Pattern INTEGER = Pattern.compile("-?\\d+");
+    private static final Pattern DECIMAL = Pattern.compile("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+    // the parsed body of each query file by its content
+    private static final BoundedCache<String, GraphqlBody> cache = new BoundedCache<>();
+
+    private final String query;
+    private final String operationName;
+    private final Map<String, Object> variables;
+
+    private GraphqlBody(String query, String operationName, Map<String, Object> variables) {
+        this.query = query;
+        this.operationName = operationName;
+        this.variables = variables;
+    }
+
+    /**
+     * Returns the body of the given query file.
+     *
+     * @param source the content of the query file
+     * @return the body
+     */
+    static GraphqlBody of(String source) {
+        return cache.get(source, GraphqlBody::parse);
+    }
+
+    private static GraphqlBody parse(String source) {
+        return json(source)
+                .filter(json -> json.isJsonObject() && json.getAsJsonObject().has("query"))
+                .map(JsonElement::getAsJsonObject)
+                .map(GraphqlBody::fromJson)
+                .orElseGet(() -> new GraphqlBody(source, null, Map.of()));
+    }
+
+    private static GraphqlBody fromJson(JsonObject json) {
+        String operationName = json.has("operationName") && !json.get("operationName").isJsonNull()
+                ? json.get("operationName").getAsString() : null;
+        Map<String, Object> variables = json.has("variables") && json.get("variables").isJsonObject()
+                ? toJava(json.getAsJsonObject("variables")) : Map.of();
+        return new GraphqlBody(json.get("query").getAsString(), operationName, variables);
+    }
+
+    // the json of the whole given string or an empty Optional, if it is not json
+    private static Optional<JsonElement> json(String source) {
+        try {
+            JsonReader reader = new JsonReader(new StringReader(source));
+            JsonElement json = new JsonParser().parse(reader);
+            return reader.peek() == JsonToken.END_DOCUMENT ? Optional.of(json) : Optional.empty();
+        } catch (JsonParseException | IllegalStateException | IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Object toJava(JsonElement json) {
+        if (json.isJsonObject()) {
+            return toJava(json.getAsJsonObject());
+        }
+        if (json.isJsonArray()) {
+            List<Object> array = new ArrayList<>();
+            json.getAsJsonArray().forEach(element -> array.add(toJava(element)));
+            return Collections.unmodifiableList(array);
+        }
+        if (json.isJsonNull()) {
+            return null;
+        }
+        JsonPrimitive primitive = json.getAsJsonPrimitive();
+        if (primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+        return primitive.isNumber() ? number(primitive.getAsString()) : primitive.getAsString();
+    }
+
+    private static Map<String, Object> toJava(JsonObject json) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        json.entrySet().forEach(member -> object.put(member.getKey(), toJava(member.getValue())));
+        return Collections.unmodifiableMap(object);
+    }
+
+    private static Object number(String value) {
+        return INTEGER.matcher(value).matches() && value.length() < 19 ? (Object) Long.parseLong(value) : new BigDecimal(value);
+    }
+
+    /**
+     * Returns the given string as json literal, like a number, a boolean, an object or an array, or the string itself,
+     * if it is no json literal.
+     *
+     * @param value the string
+     * @return the json value
+     */
+    static Object literal(String value) {
+        String trimmed = value.trim();
+        if ("true".equals(trimmed) || "false".equals(trimmed)) {
+            return Boolean.parseBoolean(trimmed);
+        }
+        if ("null".equals(trimmed)) {
+            return null;
+        }
+        if (DECIMAL.matcher(trimmed).matches()) {
+            return number(trimmed);
+        }
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            return json(trimmed).filter(json -> json.isJsonObject() || json.isJsonArray()).map(GraphqlBody::toJava).orElse(value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns a modifiable copy of the given json object, like a request body, with the names of its members as keys.
+     *
+     * @param object the json object
+     * @return the copy
+     */
+    static Map<String, Object> members(Map<?, ?> object) {
+        Map<String, Object> members = new LinkedHashMap<>();
+        object.forEach((name, value) -> members.put(String.valueOf(name), value));
+        return members;
+    }
+
+    String query() {
+        return query;
+    }
+
+    Optional<String> operationName() {
+        return Optional.ofNullable(operationName);
+    }
+
+    /**
+     * Returns the variables of the query file, whose values may contain variables.
+     *
+     * @return the unmodifiable variables
+     */
+    Map<String, Object> variables() {
+        return variables;
+    }
+}
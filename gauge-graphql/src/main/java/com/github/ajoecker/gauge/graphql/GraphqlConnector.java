@@ -0,0 +1,368 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.random.data.VariableStorage;
+import com.github.ajoecker.gauge.services.BoundedCache;
+import com.github.ajoecker.gauge.services.Connector;
+import com.github.ajoecker.gauge.services.HttpClientTransport;
+import com.github.ajoecker.gauge.services.Isolated;
+import com.github.ajoecker.gauge.services.Sender;
+import com.github.ajoecker.gauge.services.login.AuthenticationHandler;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import io.restassured.response.Response;
+import org.tinylog.Logger;
+import org.yaml.snakeyaml.Yaml;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The {@link Connector} to a graphql service.
+ * <p>
+ * By default, all variables like <code>%size%</code> are replaced in the query file, before it is sent.
+ * <p>
+ * With <code>gauge.service.graphql.variables</code>, the query document is sent as it is and the values are sent in the
+ * <code>variables</code> of the request instead, so that the service can reuse its parsed document. The variables are
+ * the <code>variables</code> of the query file, in which each variable is replaced, and the variables given with the
+ * step, like by a table.
+ * <p>
+ * With <code>gauge.service.graphql.apq</code>, queries are sent as {@link PersistedQueries}.
+ * <p>
+ * With <code>gauge.service.graphql.schema</code>, each query is validated by a {@link SchemaValidator} before it is
+ * sent.
+ * <p>
+ * With <code>gauge.service.graphql.incremental</code>, queries with <code>@defer</code> or <code>@stream</code> are read
+ * by {@link IncrementalDelivery} and the payloads are merged into one response, see {@link #incrementalResult()}.
+ * <p>
+ * Multiple queries can be sent batched as json array, see {@link #postBatch(Map, AuthenticationHandler)}.
+ * <p>
+ * Subscriptions are opened as {@link GraphqlSubscription} at the endpoint, see {@link #subscribe(String, AuthenticationHandler)}.
+ */
+public class GraphqlConnector extends Connector {
+    // the body of each query file by its content, as it is sent without variables
+    private static final BoundedCache<String, Map<String, Object>> skeletons = new BoundedCache<>();
+
+    private final boolean variables;
+    private final PersistedQueries persistedQueries;
+    private final SchemaValidator schemaValidator;
+    private final boolean incremental;
+    private final Isolated<IncrementalResult> latestIncremental;
+    private final Isolated<GraphqlSubscription> subscription;
+    private final HttpClient webSocketClient = HttpClient.newHttpClient();
+
+    public GraphqlConnector(Sender sender) {
+        this(VariableStorage.get(), sender);
+    }
+
+    public GraphqlConnector(VariableStorage variableStorage, Sender sender) {
+        super(variableStorage, sender, "data.");
+        this.variables = sender.getVariableAccessor().graphqlVariables();
+        this.persistedQueries = sender.getVariableAccessor().graphqlPersistedQueries() ? new PersistedQueries() : null;
+        this.schemaValidator = sender.getVariableAccessor().graphqlSchema().map(SchemaValidator::load).orElse(null);
+        this.incremental = sender.getVariableAccessor().graphqlIncremental();
+        this.latestIncremental = new Isolated<>(sender.getVariableAccessor().isolation(), () -> null);
+        this.subscription = new Isolated<>(sender.getVariableAccessor().isolation(), () -> null);
+    }
+
+    /**
+     * Opens a subscription with the given query at the endpoint, whose scheme is replaced by <code>ws</code> or
+     * <code>wss</code> respectively. The latest subscription is closed before, if it is still open.
+     *
+     * @param query                 the subscription query
+     * @param authenticationHandler the {@link AuthenticationHandler} to ensure authentication
+     */
+    public final void subscribe(String query, AuthenticationHandler authenticationHandler) {
+        unsubscribe();
+        Object body = bodyFor(query, Map.of());
+        if (!PersistedQueries.isQuery(body)) {
+            throw new IllegalArgumentException("subscription contains no query: " + query);
+        }
+        String endpoint = sender.getCompleteEndpoint("");
+        URI uri = URI.create(endpoint.replaceFirst("^http", "ws"));
+        subscription.set(GraphqlSubscription.open(webSocketClient, uri, GraphqlBody.members((Map<?, ?>) body),
+                sender.loginHeaders(authenticationHandler), sender.getVariableAccessor().graphqlSubscriptionBuffer(),
+                sender.getVariableAccessor().graphqlSubscriptionTimestamp().orElse(null)));
+    }
+
+    /**
+     * Waits for the given number of events of the subscription and sets the kept events as latest response, with the
+     * data of each event in the list <code>data.events</code>, like <code>data.events[0].ticker.price</code>.
+     *
+     * @param count   the number of events in total
+     * @param timeout the timeout in milliseconds
+     * @return the number of events received in total
+     * @throws IllegalStateException if the subscription failed
+     */
+    public final long awaitEvents(long count, long timeout) {
+        GraphqlSubscription current = subscription();
+        long received = current.await(count, timeout);
+        current.failure().ifPresent(failure -> {
+            throw new IllegalStateException("subscription failed after " + received + " events: " + failure);
+        });
+        String json = current.json();
+        HttpHeaders headers = HttpHeaders.of(Map.of("Content-Type", List.of("application/json")), (name, value) -> true);
+        sender.setResponse(HttpClientTransport.toResponse(HttpClient.Version.HTTP_1_1, 200, headers,
+                json.getBytes(StandardCharsets.UTF_8), 0), json);
+        Logger.info("subscription: {}", current);
+        return received;
+    }
+
+    /**
+     * Closes the latest subscription, if it is still open. Its events are still available.
+     */
+    public final void unsubscribe() {
+        GraphqlSubscription current = subscription.get();
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Closes the subscription at the end of a scenario. The subscription and the latest incremental response of the
+     * current thread are released, if configured via <code>gauge.service.isolation</code>.
+     */
+    @Override
+    public void release() {
+        unsubscribe();
+        subscription.release();
+        latestIncremental.release();
+    }
+
+    final GraphqlSubscription subscription() {
+        GraphqlSubscription current = subscription.get();
+        if (current == null) {
+            throw new IllegalStateException("no subscription is opened");
+        }
+        return current;
+    }
+
+    /**
+     * Returns the result of the latest query, which was read incrementally.
+     *
+     * @return the result
+     * @throws IllegalStateException if no query was read incrementally
+     */
+    final IncrementalResult incrementalResult() {
+        IncrementalResult result = latestIncremental.get();
+        if (result == null) {
+            throw new IllegalStateException("no incremental response, gauge.service.graphql.incremental is "
+                    + (incremental ? "set, but no query was posted yet" : "not set"));
+        }
+        return result;
+    }
+
+    /**
+     * Returns a human readable summary of the persisted queries, if they are used.
+     *
+     * @return the summary or an empty {@link Optional}
+     */
+    public Optional<String> persistedQueriesSummary() {
+        return Optional.ofNullable(persistedQueries).map(PersistedQueries::summary);
+    }
+
+    /**
+     * Sends the given queries batched in json arrays of at most <code>gauge.service.graphql.batch.size</code> queries
+     * and sets the merged results as latest response.
+     * <p>
+     * The data of each query is merged under its name, like <code>data.artists</code> for the query named
+     * <code>artists</code>, and the errors of all queries under <code>errors</code>, each with the name of its query as
+     * <code>operation</code>.
+     *
+     * @param queries               the queries by their name in the order they are sent
+     * @param authenticationHandler the {@link AuthenticationHandler} to ensure authentication
+     */
+    public final void postBatch(Map<String, String> queries, AuthenticationHandler authenticationHandler) {
+        if (queries.isEmpty()) {
+            throw new IllegalArgumentException("no queries to batch");
+        }
+        String postEndpoint = sender.getCompleteEndpoint("");
+        int batchSize = sender.getVariableAccessor().graphqlBatchSize();
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("invalid batch size " + batchSize);
+        }
+        List<String> names = new ArrayList<>(queries.keySet());
+        JsonObject data = new JsonObject();
+        JsonArray errors = new JsonArray();
+        Response response = null;
+        for (int from = 0; from < names.size(); from += batchSize) {
+            List<String> batch = names.subList(from, Math.min(from + batchSize, names.size()));
+            Logger.info("posting batch of {} queries to {}", batch.size(), postEndpoint);
+            List<Object> body = new ArrayList<>(batch.size());
+            batch.forEach(name -> body.add(bodyFor(queries.get(name), Map.of())));
+            response = sendPost(authenticationHandler, postEndpoint, body);
+            merge(batch, response, data, errors);
+        }
+        JsonObject merged = new JsonObject();
+        merged.add("data", data);
+        if (errors.size() > 0) {
+            merged.add("errors", errors);
+        }
+        sender.setResponse(response, merged.toString());
+    }
+
+    private static void merge(List<String> names, Response response, JsonObject data, JsonArray errors) {
+        JsonElement results;
+        try {
+            results = new JsonParser().parse(response.asString());
+        } catch (JsonParseException e) {
+            results = JsonNull.INSTANCE;
+        }
+        if (!results.isJsonArray() || results.getAsJsonArray().size() != names.size()) {
+            throw new IllegalStateException("expected " + names.size() + " results of batch, but got status code "
+                    + response.statusCode() + " with " + abbreviate(response.asString()));
+        }
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+            JsonElement result = results.getAsJsonArray().get(i);
+            if (!result.isJsonObject()) {
+                throw new IllegalStateException("result of " + name + " is no object: " + abbreviate(result.toString()));
+            }
+            JsonObject object = result.getAsJsonObject();
+            data.add(name, object.has("data") ? object.get("data") : JsonNull.INSTANCE);
+            if (object.has("errors") && object.get("errors").isJsonArray()) {
+                object.getAsJsonArray("errors").forEach(error -> {
+                    if (error.isJsonObject()) {
+                        error.getAsJsonObject().addProperty("operation", name);
+                    }
+                    errors.add(error);
+                });
+            }
+        }
+    }
+
+    private static String abbreviate(String body) {
+        return body.length() > 200 ? body.substring(0, 200) + "..." : body;
+    }
+
+    @Override
+    protected Response sendPost(AuthenticationHandler authenticationHandler, String endpoint, Object body) {
+        if (persistedQueries == null || !PersistedQueries.isQuery(body)) {
+            return post(authenticationHandler, endpoint, body);
+        }
+        Map<String, Object> query = GraphqlBody.members((Map<?, ?>) body);
+        Response response = post(authenticationHandler, endpoint, persistedQueries.hashed(query));
+        return PersistedQueries.isNotFound(response) ? register(authenticationHandler, endpoint, query) : hit(query, response);
+    }
+
+    @Override
+    protected CompletableFuture<Response> sendPostAsync(AuthenticationHandler authenticationHandler, String endpoint, Object body) {
+        if (persistedQueries == null || !PersistedQueries.isQuery(body)) {
+            return super.sendPostAsync(authenticationHandler, endpoint, body);
+        }
+        Map<String, Object> query = GraphqlBody.members((Map<?, ?>) body);
+        return super.sendPostAsync(authenticationHandler, endpoint, persistedQueries.hashed(query))
+                .thenCompose(response -> PersistedQueries.isNotFound(response)
+                        ? super.sendPostAsync(authenticationHandler, endpoint, persistedQueries.registering(query))
+                        .thenApply(this::registered)
+                        : CompletableFuture.completedFuture(hit(query, response)));
+    }
+
+    private Response register(AuthenticationHandler authenticationHandler, String endpoint, Map<String, Object> query) {
+        Logger.info("registering persisted query");
+        return registered(post(authenticationHandler, endpoint, persistedQueries.registering(query)));
+    }
+
+    private Response post(AuthenticationHandler authenticationHandler, String endpoint, Object body) {
+        if (!incremental || body instanceof List) {
+            return super.sendPost(authenticationHandler, endpoint, body);
+        }
+        return sender.sendPost(authenticationHandler, endpoint, body, new IncrementalDelivery(sender.getTransport(), latestIncremental::set));
+    }
+
+    private Response registered(Response response) {
+        persistedQueries.registered();
+        return response;
+    }
+
+    private Response hit(Map<String, Object> query, Response response) {
+        persistedQueries.hit(query);
+        return response;
+    }
+
+    @Override
+    protected Object bodyFor(String query) {
+        Map<String, Object> body = skeletons.get(query, GraphqlConnector::parse);
+        if (body.get("query") instanceof String) {
+            Object operationName = body.get("operationName");
+            validate((String) body.get("query"), operationName instanceof String ? (String) operationName : null);
+        }
+        return body;
+    }
+
+    // the body of a query file, which is read as yaml, so that also json with single quoted strings is read
+    private static Map<String, Object> parse(String query) {
+        Object body = new Yaml().load(query);
+        if (!(body instanceof Map)) {
+            throw new IllegalArgumentException("query file is no object: " + abbreviate(query));
+        }
+        return Collections.unmodifiableMap(GraphqlBody.members((Map<?, ?>) body));
+    }
+
+    @Override
+    protected Object bodyFor(String query, Map<String, String> variables) {
+        if (!this.variables) {
+            return super.bodyFor(query, variables);
+        }
+        GraphqlBody body = GraphqlBody.of(query);
+        validate(body.query(), body.operationName().orElse(null));
+        Map<String, Object> values = new LinkedHashMap<>();
+        body.variables().forEach((name, value) -> values.put(name, resolve(value, variables)));
+        variables.forEach((name, value) -> values.put(name, given(value)));
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("query", body.query());
+        body.operationName().ifPresent(operationName -> request.put("operationName", operationName));
+        request.put("variables", values);
+        return request;
+    }
+
+    // the document of a query file is the same for all values of its variables, unless it contains variables itself
+    private void validate(String document, String operationName) {
+        if (schemaValidator != null) {
+            schemaValidator.validate(document, operationName);
+        }
+    }
+
+    private Object resolve(Object value, Map<String, String> variables) {
+        if (value instanceof Map) {
+            Map<String, Object> resolved = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((name, each) -> resolved.put(String.valueOf(name), resolve(each, variables)));
+            return resolved;
+        }
+        if (value instanceof List) {
+            List<Object> resolved = new ArrayList<>();
+            ((List<?>) value).forEach(each -> resolved.add(resolve(each, variables)));
+            return resolved;
+        }
+        return value instanceof String ? resolve((String) value, variables) : value;
+    }
+
+    // a single variable keeps the type of its value, like a number, all other strings stay strings
+    private Object resolve(String value, Map<String, String> variables) {
+        Optional<String> variable = variableOf(value);
+        if (variable.isPresent()) {
+            String name = variable.get();
+            return variables.containsKey(name) ? given(variables.get(name)) : getVariableValue(name)
+                    .orElseThrow(() -> new NoSuchElementException("no value for variable " + name));
+        }
+        return replaceVariables(value, name -> variables.containsKey(name) ? Optional.ofNullable(given(variables.get(name))) : getVariableValue(name), false);
+    }
+
+    // a value given with the step, like 4 or %latitude%, which is read as json literal, if it is no single variable
+    private Object given(String value) {
+        return variableOf(value).isPresent() ? resolve(value, Map.of()) : GraphqlBody.literal(replaceVariables(value, this::getVariableValue, false));
+    }
+}
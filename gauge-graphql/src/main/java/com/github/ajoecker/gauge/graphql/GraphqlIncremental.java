@@ -0,0 +1,31 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.common.Service;
+import com.thoughtworks.gauge.Step;
+import org.hamcrest.MatcherAssert;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class GraphqlIncremental extends Service<GraphqlConnector> {
+    @Step({"Then initial payload arrived in less than <timeout> ms", "And initial payload arrived in less than <timeout> ms",
+            "Then initial payload arrived in less than <timeout>ms", "And initial payload arrived in less than <timeout>ms"})
+    public void initialPayloadInLessThanMs(long timeout) {
+        IncrementalResult result = arrived();
+        MatcherAssert.assertThat("initial payload of " + result, result.initial(), lessThanOrEqualTo((double) timeout));
+    }
+
+    @Step({"Then all payloads arrived in less than <timeout> ms", "And all payloads arrived in less than <timeout> ms",
+            "Then all payloads arrived in less than <timeout>ms", "And all payloads arrived in less than <timeout>ms"})
+    public void allPayloadsInLessThanMs(long timeout) {
+        IncrementalResult result = arrived();
+        MatcherAssert.assertThat("last payload of " + result, result.last(), lessThanOrEqualTo((double) timeout));
+    }
+
+    // the steps fail without any payload, instead of passing for an arrival, which never happened
+    private IncrementalResult arrived() {
+        IncrementalResult result = connector().incrementalResult();
+        MatcherAssert.assertThat("payloads of the incremental response", result.payloads(), greaterThan(0));
+        return result;
+    }
+}
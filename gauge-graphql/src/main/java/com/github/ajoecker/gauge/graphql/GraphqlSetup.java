@@ -1,13 +1,11 @@
 package com.github.ajoecker.gauge.graphql;
 
-import com.github.ajoecker.gauge.services.Connector;
 import com.github.ajoecker.gauge.services.Registry;
+import com.thoughtworks.gauge.AfterSuite;
 import com.thoughtworks.gauge.BeforeSuite;
+import com.thoughtworks.gauge.Gauge;
 import com.thoughtworks.gauge.Step;
 import org.tinylog.Logger;
-import org.yaml.snakeyaml.Yaml;
-
-import java.util.Map;
 
 public class GraphqlSetup {
     private static final String GRAPHQL_TYPE = "graphql";
@@ -15,12 +13,17 @@ public class GraphqlSetup {
     @BeforeSuite
     public void before() {
         Logger.info("setting up graphql service");
-        Registry.get().init(GRAPHQL_TYPE, sender -> new Connector(sender, "data.") {
-            @Override
-            protected Object bodyFor(String query) {
-                return new Yaml().<Map<String, Object>>load(query);
-            }
-        });
+        // the subscription is closed at the end of each scenario by the release of the connector
+        Registry.get().init(GRAPHQL_TYPE, GraphqlConnector::new);
+    }
+
+    // gauge may create a new instance of this class per scenario, so the connector is looked up at the registry
+    @AfterSuite
+    public void after() {
+        Registry.get().connector(GRAPHQL_TYPE)
+                .map(GraphqlConnector.class::cast)
+                .flatMap(GraphqlConnector::persistedQueriesSummary)
+                .ifPresent(Gauge::writeMessage);
     }
 
     @Step("Given the graphql endpoint <endpoint>")
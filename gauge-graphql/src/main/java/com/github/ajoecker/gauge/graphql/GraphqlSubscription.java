@@ -0,0 +1,346 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.LatencyHistogram;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import org.tinylog.Logger;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A graphql subscription over a web socket, which collects the events of the subscription.
+ * <p>
+ * The subscription speaks the <code>graphql-transport-ws</code> protocol and, if the service only knows it, the older
+ * <code>graphql-ws</code> protocol. The login headers are sent with the handshake of the web socket and as payload of
+ * <code>connection_init</code>.
+ * <p>
+ * At most the given number of events is kept, so that a long running subscription does not grow without bound; if more
+ * events arrive, the oldest ones are dropped. The events per second are counted from the subscribe until the latest
+ * event. If a path to the time an event was published is given, like <code>ticker.publishedAt</code>, the latency from
+ * the publication to the receipt of each event is recorded, which needs the clocks of the service and of the tests to
+ * be in sync.
+ */
+final class GraphqlSubscription implements WebSocket.Listener {
+    private static final String TRANSPORT_WS = "graphql-transport-ws";
+    private static final String GRAPHQL_WS = "graphql-ws";
+    private static final String ID = "1";
+
+    private final Map<String, Object> body;
+    private final Map<String, String> headers;
+    private final int capacity;
+    private final String[] timestampPath;
+    private final Deque<JsonElement> events = new ArrayDeque<>();
+    private final JsonArray errors = new JsonArray();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final StringBuilder text = new StringBuilder();
+    private WebSocket webSocket;
+    private CompletableFuture<WebSocket> sending;
+    private long received;
+    private long dropped;
+    private long subscribed;
+    private long latest;
+    private boolean done;
+    private boolean closed;
+    private String failure;
+
+    private GraphqlSubscription(Map<String, Object> body, Map<String, String> headers, int capacity, String timestampPath) {
+        this.body = body;
+        this.headers = headers;
+        this.capacity = capacity;
+        this.timestampPath = timestampPath == null ? null : timestampPath.split("\\.");
+    }
+
+    /**
+     * Opens a subscription.
+     *
+     * @param httpClient    the client to open the web socket
+     * @param uri           the uri of the web socket
+     * @param body          the body with <code>query</code> and optionally <code>operationName</code> and
+     *                      <code>variables</code>
+     * @param headers       the headers of the login
+     * @param capacity      the maximal number of kept events
+     * @param timestampPath the path to the time an event was published or <code>null</code>
+     * @return the subscription
+     */
+    static GraphqlSubscription open(HttpClient httpClient, URI uri, Map<String, Object> body, Map<String, String> headers,
+                                    int capacity, String timestampPath) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("invalid subscription buffer " + capacity);
+        }
+        Logger.info("subscribing at {}", uri);
+        GraphqlSubscription subscription = new GraphqlSubscription(body, headers, capacity, timestampPath);
+        WebSocket.Builder builder = httpClient.newWebSocketBuilder().subprotocols(TRANSPORT_WS, GRAPHQL_WS);
+        headers.forEach(builder::header);
+        try {
+            builder.buildAsync(uri, subscription).join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("opening web socket " + uri + " failed", e.getCause());
+        }
+        return subscription;
+    }
+
+    @Override
+    public synchronized void onOpen(WebSocket webSocket) {
+        this.webSocket = webSocket;
+        this.sending = CompletableFuture.completedFuture(webSocket);
+        send(message("connection_init", null, new LinkedHashMap<>(headers)));
+        webSocket.request(1);
+    }
+
+    @Override
+    public synchronized CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        text.append(data);
+        if (last) {
+            String message = text.toString();
+            text.setLength(0);
+            handle(message);
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    private void handle(String message) {
+        JsonObject json;
+        try {
+            json = new JsonParser().parse(message).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            fail("invalid message " + message);
+            return;
+        }
+        String type = json.has("type") ? json.get("type").getAsString() : "";
+        switch (type) {
+            case "connection_ack":
+                subscribed = System.nanoTime();
+                send(message(isTransportWs() ? "subscribe" : "start", ID, body));
+                break;
+            case "ping":
+                send(message("pong", null, null));
+                break;
+            case "next":
+            case "data":
+                event(json.getAsJsonObject("payload"));
+                break;
+            case "error":
+                errors.addAll(json.get("payload").isJsonArray() ? json.getAsJsonArray("payload") : single(json.get("payload")));
+                complete();
+                break;
+            case "complete":
+                complete();
+                break;
+            case "connection_error":
+                fail("connection refused: " + json.get("payload"));
+                break;
+            default:
+                // like ka, the keep alive of graphql-ws, or pong
+                break;
+        }
+    }
+
+    private boolean isTransportWs() {
+        return !GRAPHQL_WS.equals(webSocket.getSubprotocol());
+    }
+
+    private void event(JsonObject payload) {
+        long now = System.nanoTime();
+        received++;
+        latest = now;
+        if (events.size() >= capacity) {
+            events.removeFirst();
+            dropped++;
+        }
+        events.addLast(payload.has("data") ? payload.get("data") : payload);
+        if (payload.has("errors") && payload.get("errors").isJsonArray()) {
+            errors.addAll(payload.getAsJsonArray("errors"));
+        }
+        if (timestampPath != null && payload.has("data")) {
+            publishedAt(payload.get("data")).ifPresent(published -> latencies.record(
+                    Math.max(0, TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis() - published.toEpochMilli()))));
+        }
+        notifyAll();
+    }
+
+    // the time of publication as epoch milliseconds or as ISO-8601 string
+    private Optional<Instant> publishedAt(JsonElement data) {
+        JsonElement current = data;
+        for (String key : timestampPath) {
+            if (current == null || !current.isJsonObject()) {
+                return Optional.empty();
+            }
+            current = current.getAsJsonObject().get(key);
+        }
+        if (current == null || !current.isJsonPrimitive()) {
+            return Optional.empty();
+        }
+        JsonPrimitive value = current.getAsJsonPrimitive();
+        try {
+            return Optional.of(value.isNumber() ? Instant.ofEpochMilli(value.getAsLong()) : Instant.parse(value.getAsString()));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            Logger.warn("cannot read time of publication {}", value);
+            return Optional.empty();
+        }
+    }
+
+    private static JsonArray single(JsonElement element) {
+        JsonArray array = new JsonArray();
+        array.add(element);
+        return array;
+    }
+
+    @Override
+    public synchronized CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        if (!done) {
+            fail("web socket closed with " + statusCode + (reason.isEmpty() ? "" : " " + reason));
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void onError(WebSocket webSocket, Throwable error) {
+        fail("web socket failed: " + error);
+    }
+
+    private void complete() {
+        done = true;
+        notifyAll();
+    }
+
+    private void fail(String message) {
+        if (!done) {
+            Logger.warn("subscription failed: {}", message);
+            failure = message;
+        }
+        complete();
+    }
+
+    // sends one message after the other, as a web socket does not accept a message before the previous one is sent
+    private void send(String message) {
+        sending = sending.thenCompose(ws -> ws.sendText(message, true));
+    }
+
+    private static String message(String type, String id, Object payload) {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("type", type);
+        if (id != null) {
+            message.put("id", id);
+        }
+        if (payload != null) {
+            message.put("payload", payload);
+        }
+        return new Gson().toJson(message);
+    }
+
+    /**
+     * Waits until the given number of events is received in total, the subscription is completed or the timeout
+     * elapses.
+     *
+     * @param count   the number of events
+     * @param timeout the timeout in milliseconds
+     * @return the number of events received in total
+     */
+    synchronized long await(long count, long timeout) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        long remaining = timeout;
+        while (received < count && !done && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("waiting for events was interrupted", e);
+            }
+            remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        }
+        return received;
+    }
+
+    /**
+     * Returns the kept events as response, with the data of each event in the list <code>data.events</code> and all
+     * errors in <code>errors</code>.
+     *
+     * @return the json of the events
+     */
+    synchronized String json() {
+        JsonArray list = new JsonArray();
+        events.forEach(list::add);
+        JsonObject data = new JsonObject();
+        data.add("events", list);
+        JsonObject json = new JsonObject();
+        json.add("data", data);
+        if (errors.size() > 0) {
+            json.add("errors", errors);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Completes the subscription and closes the web socket. The received events are kept.
+     */
+    synchronized void close() {
+        if (closed || webSocket == null) {
+            return;
+        }
+        if (!done) {
+            send(message(isTransportWs() ? "complete" : "stop", ID, null));
+        }
+        closed = true;
+        complete();
+        if (!webSocket.isOutputClosed()) {
+            sending = sending.thenCompose(ws -> ws.sendClose(WebSocket.NORMAL_CLOSURE, ""));
+        }
+    }
+
+    /**
+     * Returns the failure of the subscription, like a closed connection.
+     *
+     * @return the failure or an empty {@link Optional}
+     */
+    synchronized Optional<String> failure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * Returns the number of events per second from the subscribe until the latest event.
+     *
+     * @return the events per second or <code>0</code>, if no event is received
+     */
+    synchronized double eventsPerSecond() {
+        return received == 0 || latest <= subscribed ? 0 : received * 1_000_000_000.0 / (latest - subscribed);
+    }
+
+    /**
+     * Returns the latencies from the publication to the receipt of the events.
+     *
+     * @return the latencies
+     * @throws IllegalStateException if no path to the time of publication is given
+     */
+    LatencyHistogram latencies() {
+        if (timestampPath == null) {
+            throw new IllegalStateException("gauge.service.graphql.subscription.timestamp is not set");
+        }
+        return latencies;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ENGLISH, "%d events (%d dropped), %.1f events/s", received, dropped, eventsPerSecond())
+                + (timestampPath == null ? "" : ", latency " + latencies);
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.LatencyHistogram;
+import com.github.ajoecker.gauge.services.common.Service;
+import com.thoughtworks.gauge.Gauge;
+import com.thoughtworks.gauge.Step;
+import org.hamcrest.MatcherAssert;
+
+import static com.github.ajoecker.gauge.services.common.Common.percentileOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class GraphqlSubscriptions extends Service<GraphqlConnector> {
+    @Step({"When subscribing to <query>", "And subscribing to <query>"})
+    public void subscribing(String query) {
+        connector().subscribe(query, authenticationHandler);
+    }
+
+    @Step({"When waiting for <count> events within <timeout> s", "And waiting for <count> events within <timeout> s",
+            "When waiting for <count> events within <timeout>s", "And waiting for <count> events within <timeout>s"})
+    public void waitingForEvents(long count, long timeout) {
+        long received = connector().awaitEvents(count, timeout * 1000);
+        Gauge.writeMessage("subscription: " + connector().subscription());
+        MatcherAssert.assertThat("events received within " + timeout + " s", received, greaterThanOrEqualTo(count));
+    }
+
+    @Step({"When unsubscribing", "And unsubscribing"})
+    public void unsubscribing() {
+        connector().unsubscribe();
+    }
+
+    @Step({"Then events per second is at least <rate>", "And events per second is at least <rate>"})
+    public void eventsPerSecondAtLeast(double rate) {
+        GraphqlSubscription subscription = connector().subscription();
+        MatcherAssert.assertThat("events per second of " + subscription, subscription.eventsPerSecond(), greaterThanOrEqualTo(rate));
+    }
+
+    @Step({"Then <percentile> event latency is less than <timeout> ms", "And <percentile> event latency is less than <timeout> ms",
+            "Then <percentile> event latency is less than <timeout>ms", "And <percentile> event latency is less than <timeout>ms"})
+    public void eventLatencyInLessThanMs(String percentile, long timeout) {
+        LatencyHistogram latencies = connector().subscription().latencies();
+        MatcherAssert.assertThat(percentile + " event latency of " + latencies, latencies.percentile(percentileOf(percentile)),
+                lessThanOrEqualTo((double) timeout));
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.HttpClientTransport;
+import com.github.ajoecker.gauge.services.Transport;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.tinylog.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A filter, that reads an incremental <code>multipart/mixed</code> response of a graphql request part by part.
+ * <p>
+ * The request is sent by the configured {@link Transport}, like any other request. With the {@link HttpClientTransport},
+ * the response is streamed by its client, so that each part is read as it arrives. Any other transport reads the whole
+ * response, before its parts are read.
+ * <p>
+ * The payloads of all parts are merged into an {@link IncrementalResult}, which is handed to the given consumer, and
+ * the merged json is returned as the body of the response, so that it can be read like any other response. A response,
+ * which is not <code>multipart/mixed</code>, is read as the only payload.
+ */
+final class IncrementalDelivery implements OrderedFilter {
+    private static final String ACCEPT = "multipart/mixed; deferSpec=20220824, application/json";
+    private static final Pattern BOUNDARY = Pattern.compile("boundary=\"?([^\";]+)\"?", Pattern.CASE_INSENSITIVE);
+
+    private final Transport transport;
+    private final Consumer<IncrementalResult> consumer;
+
+    IncrementalDelivery(Transport transport, Consumer<IncrementalResult> consumer) {
+        this.transport = transport;
+        this.consumer = consumer;
+    }
+
+    @Override
+    public int getOrder() {
+        // wraps the timing, the compression and the transport, as it may stream the response by itself
+        return LOWEST_PRECEDENCE - 3;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        requestSpec.replaceHeader("Accept", ACCEPT);
+        // the parts must be read as they arrive, so they must not be compressed as a whole
+        requestSpec.replaceHeader("Accept-Encoding", "identity");
+        long start = System.nanoTime();
+        if (transport instanceof HttpClientTransport) {
+            HttpRequest request = HttpClientTransport.toHttpRequest(requestSpec).build();
+            HttpResponse<InputStream> response = ((HttpClientTransport) transport).stream(request);
+            try (InputStream body = response.body()) {
+                IncrementalResult result = read(body, response.headers().firstValue("Content-Type").orElse(""), start);
+                return respond(response.version(), response.statusCode(), response.headers().map(), result, start);
+            } catch (IOException e) {
+                throw new UncheckedIOException("reading incremental response of " + request.uri() + " failed", e);
+            }
+        }
+        Response response = ctx.next(requestSpec, responseSpec);
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        response.getHeaders().forEach(header -> headers.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue()));
+        try (InputStream body = new ByteArrayInputStream(response.asByteArray())) {
+            IncrementalResult result = read(body, Optional.ofNullable(response.getHeader("Content-Type")).orElse(""), start);
+            HttpClient.Version version = response.getStatusLine() != null && response.getStatusLine().startsWith("HTTP/2")
+                    ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+            return respond(version, response.statusCode(), headers, result, start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("reading incremental response of " + requestSpec.getURI() + " failed", e);
+        }
+    }
+
+    private IncrementalResult read(InputStream body, String contentType, long start) throws IOException {
+        IncrementalResult result = new IncrementalResult();
+        Matcher boundary = BOUNDARY.matcher(contentType);
+        if (contentType.toLowerCase(Locale.ENGLISH).startsWith("multipart/mixed") && boundary.find()) {
+            readParts(body, boundary.group(1), payload -> result.accept(payload, System.nanoTime() - start));
+        } else {
+            result.accept(new String(body.readAllBytes(), StandardCharsets.UTF_8), System.nanoTime() - start);
+        }
+        consumer.accept(result);
+        return result;
+    }
+
+    private static Response respond(HttpClient.Version version, int statusCode, Map<String, List<String>> responseHeaders,
+                                    IncrementalResult result, long start) {
+        Logger.info("incremental response: {}", result);
+        Map<String, List<String>> headers = new HashMap<>(responseHeaders);
+        headers.keySet().removeIf(name -> name.equalsIgnoreCase("Content-Type") || name.equalsIgnoreCase("Content-Length"));
+        headers.put("Content-Type", List.of("application/json"));
+        return HttpClientTransport.toResponse(version, statusCode, HttpHeaders.of(headers, (name, value) -> true),
+                result.json().getBytes(StandardCharsets.UTF_8), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // a part is complete as soon as the next delimiter is read, so its arrival is not delayed by the succeeding part
+    // test-friendly
+    static void readParts(InputStream body, String boundary, Consumer<String> payloads) throws IOException {
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        boolean inPart = false;
+        byte[] line;
+        while ((line = readLine(body, delimiter)) != null) {
+            if (startsWith(line, delimiter)) {
+                if (inPart) {
+                    payloadOf(part.toByteArray()).ifPresent(payloads);
+                }
+                part.reset();
+                // the rest of the delimiter line, which is -- after the last part
+                byte[] rest = line.length > delimiter.length ? Arrays.copyOfRange(line, delimiter.length, line.length) : readLine(body, null);
+                inPart = rest != null && !startsWith(rest, "--".getBytes(StandardCharsets.US_ASCII));
+                if (!inPart) {
+                    return;
+                }
+            } else if (inPart) {
+                part.write(line);
+            }
+        }
+        if (inPart) {
+            payloadOf(part.toByteArray()).ifPresent(payloads);
+        }
+    }
+
+    // the line including its line break, the delimiter as soon as it is read, or null at the end of the stream
+    private static byte[] readLine(InputStream in, byte[] delimiter) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            line.write(b);
+            if (b == '\n' || delimiter != null && line.size() == delimiter.length && Arrays.equals(line.toByteArray(), delimiter)) {
+                break;
+            }
+        }
+        return line.size() == 0 ? null : line.toByteArray();
+    }
+
+    private static boolean startsWith(byte[] line, byte[] prefix) {
+        return line.length >= prefix.length && Arrays.equals(Arrays.copyOf(line, prefix.length), prefix);
+    }
+
+    // the body of a part after its headers, empty if it has no body, like the empty part before the final delimiter
+    private static Optional<String> payloadOf(byte[] part) {
+        String content = new String(part, StandardCharsets.UTF_8);
+        int headerEnd = content.indexOf("\r\n\r\n");
+        int separator = 4;
+        if (headerEnd < 0 || content.indexOf("\n\n") >= 0 && content.indexOf("\n\n") < headerEnd) {
+            headerEnd = content.indexOf("\n\n");
+            separator = 2;
+        }
+        String payload = headerEnd < 0 ? content : content.substring(headerEnd + separator);
+        if (headerEnd < 0 && !payload.trim().startsWith("{")) {
+            return Optional.empty();
+        }
+        payload = payload.trim();
+        return payload.isEmpty() ? Optional.empty() : Optional.of(payload);
+    }
+}
@@ -0,0 +1,215 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * The result of a graphql query with <code>@defer</code> or <code>@stream</code>, which is delivered incrementally as an
+ * initial payload and succeeding patches, merged into a single result.
+ * <p>
+ * Patches are read in the format with <code>pending</code> ids and <code>incremental</code> results, in the format with
+ * the <code>path</code> in each <code>incremental</code> result and in the early format with one result per payload.
+ * The data of a patch is merged into the object at its path, the items of a patch are appended to the list at its path.
+ */
+final class IncrementalResult {
+    private final JsonObject merged = new JsonObject();
+    private final Map<String, JsonArray> pending = new HashMap<>();
+    // the arrival of each payload in nanoseconds after the request is sent
+    private final List<Long> arrivals = new ArrayList<>();
+
+    /**
+     * Merges the given payload into the result.
+     *
+     * @param payload the json of the payload
+     * @param arrival the arrival of the payload in nanoseconds after the request is sent
+     */
+    void accept(String payload, long arrival) {
+        JsonElement json = new JsonParser().parse(payload);
+        if (!json.isJsonObject()) {
+            throw new IllegalStateException("incremental payload is no object: " + payload);
+        }
+        JsonObject object = json.getAsJsonObject();
+        if (arrivals.isEmpty()) {
+            initial(object);
+        } else {
+            patch(object);
+        }
+        arrivals.add(arrival);
+    }
+
+    private void initial(JsonObject payload) {
+        for (Entry<String, JsonElement> member : payload.entrySet()) {
+            if (!"hasNext".equals(member.getKey()) && !"pending".equals(member.getKey())) {
+                merged.add(member.getKey(), member.getValue());
+            }
+        }
+        registerPending(payload);
+    }
+
+    private void patch(JsonObject payload) {
+        registerPending(payload);
+        if (payload.has("incremental")) {
+            payload.getAsJsonArray("incremental").forEach(result -> apply(result.getAsJsonObject()));
+        } else if (payload.has("path") || payload.has("id")) {
+            apply(payload);
+        }
+        if (payload.has("completed")) {
+            payload.getAsJsonArray("completed").forEach(completed -> addErrors(completed.getAsJsonObject()));
+        }
+    }
+
+    private void registerPending(JsonObject payload) {
+        if (payload.has("pending")) {
+            payload.getAsJsonArray("pending").forEach(each ->
+                    pending.put(each.getAsJsonObject().get("id").getAsString(), each.getAsJsonObject().getAsJsonArray("path")));
+        }
+    }
+
+    private void apply(JsonObject result) {
+        addErrors(result);
+        JsonArray path = pathOf(result);
+        if (result.has("items")) {
+            JsonElement target = at(path, path.size());
+            JsonArray list = target != null && target.isJsonArray() ? target.getAsJsonArray() : asArray(at(path, path.size() - 1), path);
+            list.addAll(result.getAsJsonArray("items"));
+        } else if (result.has("data") && result.get("data").isJsonObject()) {
+            JsonElement target = at(path, path.size());
+            if (target == null || !target.isJsonObject()) {
+                throw new IllegalStateException("incremental path " + path + " is no object");
+            }
+            merge(target.getAsJsonObject(), result.getAsJsonObject("data"));
+        }
+    }
+
+    private JsonArray pathOf(JsonObject result) {
+        if (result.has("path")) {
+            return result.getAsJsonArray("path");
+        }
+        String id = result.get("id").getAsString();
+        JsonArray path = pending.get(id);
+        if (path == null) {
+            throw new IllegalStateException("incremental result of unknown id " + id);
+        }
+        JsonArray full = new JsonArray();
+        full.addAll(path);
+        if (result.has("subPath")) {
+            full.addAll(result.getAsJsonArray("subPath"));
+        }
+        return full;
+    }
+
+    private static JsonArray asArray(JsonElement element, JsonArray path) {
+        if (element == null || !element.isJsonArray()) {
+            throw new IllegalStateException("incremental path " + path + " is no list");
+        }
+        return element.getAsJsonArray();
+    }
+
+    // the element at the first elements of the path within the data or null, if there is none
+    private JsonElement at(JsonArray path, int elements) {
+        JsonElement current = merged.get("data");
+        for (int i = 0; i < elements && current != null; i++) {
+            JsonElement key = path.get(i);
+            if (current.isJsonObject()) {
+                current = current.getAsJsonObject().get(key.getAsString());
+            } else if (current.isJsonArray() && key.getAsJsonPrimitive().isNumber() && key.getAsInt() < current.getAsJsonArray().size()) {
+                current = current.getAsJsonArray().get(key.getAsInt());
+            } else {
+                current = null;
+            }
+        }
+        return current;
+    }
+
+    private static void merge(JsonObject target, JsonObject patch) {
+        for (Entry<String, JsonElement> member : patch.entrySet()) {
+            JsonElement existing = target.get(member.getKey());
+            if (existing != null && existing.isJsonObject() && member.getValue().isJsonObject()) {
+                merge(existing.getAsJsonObject(), member.getValue().getAsJsonObject());
+            } else {
+                target.add(member.getKey(), member.getValue());
+            }
+        }
+    }
+
+    private void addErrors(JsonObject result) {
+        if (result.has("errors") && result.get("errors").isJsonArray()) {
+            if (!merged.has("errors")) {
+                merged.add("errors", new JsonArray());
+            }
+            merged.getAsJsonArray("errors").addAll(result.getAsJsonArray("errors"));
+        }
+    }
+
+    /**
+     * Returns the merged result.
+     *
+     * @return the json of the merged result
+     */
+    String json() {
+        return merged.toString();
+    }
+
+    /**
+     * Returns the number of payloads, which is the initial payload and its patches.
+     *
+     * @return the number of payloads
+     */
+    int payloads() {
+        return arrivals.size();
+    }
+
+    /**
+     * Returns the number of patches after the initial payload.
+     *
+     * @return the number of patches
+     */
+    int patches() {
+        return Math.max(arrivals.size() - 1, 0);
+    }
+
+    /**
+     * Returns the arrival of the initial payload after the request is sent.
+     *
+     * @return the arrival in milliseconds
+     * @throws IllegalStateException if no payload arrived
+     */
+    double initial() {
+        return arrival(0);
+    }
+
+    /**
+     * Returns the arrival of the last payload after the request is sent.
+     *
+     * @return the arrival in milliseconds
+     * @throws IllegalStateException if no payload arrived
+     */
+    double last() {
+        return arrival(arrivals.size() - 1);
+    }
+
+    private double arrival(int index) {
+        if (arrivals.isEmpty()) {
+            throw new IllegalStateException("no incremental payload arrived");
+        }
+        return arrivals.get(index) / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        if (arrivals.isEmpty()) {
+            return "no payload";
+        }
+        return String.format(Locale.ENGLISH, "initial payload after %.1f ms, %d patches, last payload after %.1f ms",
+                initial(), patches(), last());
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.BoundedCache;
+import com.github.ajoecker.gauge.services.Hashing;
+import com.github.ajoecker.gauge.services.ResponseDocument;
+import io.restassured.response.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Automatic persisted queries, which send a query only by its SHA-256 hash and register the whole query with the
+ * service, only if the service does not know the hash yet.
+ * <p>
+ * The hashes are kept per query for the whole suite. The hits and registrations are counted, as also the bytes of the
+ * queries, that are not sent thanks to a hit.
+ */
+final class PersistedQueries {
+    private static final String NOT_FOUND = "PersistedQueryNotFound";
+    private static final String NOT_FOUND_CODE = "PERSISTED_QUERY_NOT_FOUND";
+    // the sha-256 hash of each query document by the document
+    private final BoundedCache<String, String> hashes = new BoundedCache<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder registrations = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * Returns whether the given body is a graphql query, which can be persisted.
+     *
+     * @param body the body of a post
+     * @return <code>true</code> if the body contains a query
+     */
+    static boolean isQuery(Object body) {
+        return body instanceof Map && ((Map<?, ?>) body).get("query") instanceof String;
+    }
+
+    /**
+     * Returns the given body with the hash of its query instead of the query.
+     *
+     * @param body the body with a query
+     * @return the body with the hash
+     */
+    Map<String, Object> hashed(Map<String, Object> body) {
+        Map<String, Object> hashed = registering(body);
+        hashed.remove("query");
+        return hashed;
+    }
+
+    /**
+     * Returns the given body with its query and the hash of its query, which registers the query.
+     *
+     * @param body the body with a query
+     * @return the body with the query and its hash
+     */
+    Map<String, Object> registering(Map<String, Object> body) {
+        Map<String, Object> registering = new LinkedHashMap<>(body);
+        Map<String, Object> extensions = body.get("extensions") instanceof Map
+                ? GraphqlBody.members((Map<?, ?>) body.get("extensions")) : new LinkedHashMap<>();
+        extensions.put("persistedQuery", Map.of("version", 1, "sha256Hash", hash((String) body.get("query"))));
+        registering.put("extensions", extensions);
+        return registering;
+    }
+
+    private String hash(String query) {
+        return hashes.get(query, Hashing::sha256);
+    }
+
+    /**
+     * Returns whether the given response to a hashed query states, that the service does not know the hash.
+     *
+     * @param response the response
+     * @return <code>true</code> if the query must be registered
+     */
+    static boolean isNotFound(Response response) {
+        String body = response.asString();
+        if (!body.contains(NOT_FOUND) && !body.contains(NOT_FOUND_CODE)) {
+            return false;
+        }
+        Object errors = ResponseDocument.of(body).read("errors");
+        return errors instanceof List && ((List<?>) errors).stream()
+                .filter(Map.class::isInstance)
+                .map(Map.class::cast)
+                .anyMatch(error -> NOT_FOUND.equals(error.get("message"))
+                        || error.get("extensions") instanceof Map && NOT_FOUND_CODE.equals(((Map<?, ?>) error.get("extensions")).get("code")));
+    }
+
+    void hit(Map<String, Object> body) {
+        hits.increment();
+        savedBytes.add(((String) body.get("query")).getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    void registered() {
+        registrations.increment();
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long registrations() {
+        return registrations.sum();
+    }
+
+    /**
+     * Returns a human readable summary of the hits and registrations.
+     *
+     * @return the summary
+     */
+    String summary() {
+        return "persisted queries: " + hits() + " hits, " + registrations() + " registrations, "
+                + savedBytes.sum() + " bytes of queries not sent";
+    }
+}
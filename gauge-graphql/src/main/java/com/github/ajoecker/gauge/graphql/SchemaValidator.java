@@ -0,0 +1,146 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.BoundedCache;
+import com.google.gson.Gson;
+import graphql.introspection.IntrospectionResultToSchema;
+import graphql.language.Document;
+import graphql.language.OperationDefinition;
+import graphql.parser.InvalidSyntaxException;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.TypeDefinitionRegistry;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import graphql.validation.Validator;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Validates query documents against a local schema, so that an invalid query fails before it is sent.
+ * <p>
+ * The schema is read once from <code>gauge.service.graphql.schema</code>, either the json result of an introspection
+ * query or a schema in the graphql schema definition language (a file ending with <code>.graphql</code> or
+ * <code>.graphqls</code>). Each query document is parsed and validated once and the result is kept per document and
+ * operation name.
+ */
+final class SchemaValidator {
+    private final GraphQLSchema schema;
+    // the errors of each document and operation name, empty if the operation is valid
+    private final BoundedCache<Query, List<String>> validated = new BoundedCache<>();
+
+    private SchemaValidator(GraphQLSchema schema) {
+        this.schema = schema;
+    }
+
+    /**
+     * Reads the schema of the given file.
+     *
+     * @param file the introspection result or schema definition
+     * @return the validator of the schema
+     */
+    static SchemaValidator load(String file) {
+        Path path = Path.of(file);
+        Logger.info("reading graphql schema from {}", path);
+        String content;
+        try {
+            content = Files.readString(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot read graphql schema " + path, e);
+        }
+        String name = path.getFileName().toString();
+        TypeDefinitionRegistry registry = name.endsWith(".graphql") || name.endsWith(".graphqls")
+                ? new SchemaParser().parse(content)
+                : new SchemaParser().buildRegistry(new IntrospectionResultToSchema().createSchemaDefinition(introspection(content)));
+        return new SchemaValidator(UnExecutableSchemaGenerator.makeUnExecutableSchema(registry));
+    }
+
+    // the introspection result with __schema, which may be wrapped in the data of a response
+    private static Map<String, Object> introspection(String content) {
+        Map<?, ?> json = new Gson().fromJson(content, Map.class);
+        if (json != null && json.get("data") instanceof Map) {
+            json = (Map<?, ?>) json.get("data");
+        }
+        if (json == null || !json.containsKey("__schema")) {
+            throw new IllegalArgumentException("graphql schema is neither an introspection result nor a schema definition");
+        }
+        return GraphqlBody.members(json);
+    }
+
+    /**
+     * Validates the given query document with the operation to execute.
+     *
+     * @param query         the query document
+     * @param operationName the name of the operation to execute or <code>null</code>, if the document contains a single
+     *                      operation
+     * @throws IllegalArgumentException if the query is not valid against the schema
+     */
+    void validate(String query, String operationName) {
+        List<String> errors = validated.get(new Query(query, operationName), this::errors);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("invalid graphql query:\n" + String.join("\n", errors) + "\n" + query);
+        }
+    }
+
+    // test-friendly
+    int validatedQueries() {
+        return validated.size();
+    }
+
+    private List<String> errors(Query query) {
+        Document document;
+        try {
+            document = new Parser().parseDocument(query.document);
+        } catch (InvalidSyntaxException e) {
+            return List.of(e.getMessage());
+        }
+        List<String> errors = new ArrayList<>();
+        List<String> operations = document.getDefinitionsOfType(OperationDefinition.class).stream()
+                .map(OperationDefinition::getName)
+                .collect(Collectors.toList());
+        if (query.operationName != null && !operations.contains(query.operationName)) {
+            errors.add("unknown operation " + query.operationName + ", the document contains " + operations);
+        } else if (query.operationName == null && operations.size() > 1) {
+            errors.add("the operation name is missing, the document contains " + operations);
+        }
+        new Validator().validateDocument(schema, document).forEach(error -> errors.add(error.getMessage()));
+        return Collections.unmodifiableList(errors);
+    }
+
+    // a query document with the operation to execute
+    private static final class Query {
+        private final String document;
+        private final String operationName;
+
+        private Query(String document, String operationName) {
+            this.document = document;
+            this.operationName = operationName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Query)) {
+                return false;
+            }
+            Query other = (Query) o;
+            return document.equals(other.document) && Objects.equals(operationName, other.operationName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(document, operationName);
+        }
+    }
+}
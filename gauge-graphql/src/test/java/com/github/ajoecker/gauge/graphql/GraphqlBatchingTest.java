@@ -0,0 +1,149 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.Sender;
+import com.github.ajoecker.gauge.services.VariableAccessor;
+import com.sun.net.httpserver.HttpServer;
+import com.thoughtworks.gauge.Table;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GraphqlBatchingTest {
+    private static final String ARTISTS = "{\"query\": \"{ popular_artists { artists { name } } }\"}";
+    private static final String STATION = "{\"query\": \"{ stationWithEvaId(evaId: 8000105) { name } }\"}";
+
+    // the responses the server sends one after another
+    private final Queue<String> responses = new ConcurrentLinkedQueue<>();
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+    private HttpServer server;
+    private Sender sender;
+    private GraphqlConnector connector;
+    private Path file;
+
+    @BeforeEach
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            requests.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = responses.remove().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        sender = new Sender(new VariableAccessor() {
+            @Override
+            public int graphqlBatchSize() {
+                return 1;
+            }
+        });
+        sender.setEndpoint("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        connector = new GraphqlConnector(new TestVariableStorage(), sender);
+        file = Files.createTempFile("artists", ".graphql");
+        Files.writeString(file, ARTISTS);
+    }
+
+    @AfterEach
+    public void after() throws IOException {
+        sender.shutdown();
+        server.stop(0);
+        Files.deleteIfExists(file);
+    }
+
+    private static Map<String, String> queries(String... namesAndQueries) {
+        Map<String, String> queries = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndQueries.length; i += 2) {
+            queries.put(namesAndQueries[i], namesAndQueries[i + 1]);
+        }
+        return queries;
+    }
+
+    @Test
+    public void listAndTableReadQueriesAlike() {
+        Table table = new Table(List.of("name", "query"));
+        table.addRow(List.of("artists", "file:" + file));
+        table.addRow(List.of("others", file.toString()));
+        table.addRow(List.of("station", STATION));
+        assertThat(GraphqlBatching.queries(table)).isEqualTo(queries("artists", ARTISTS, "others", ARTISTS, "station", STATION));
+        assertThat(GraphqlBatching.queries("file:" + file + ", " + file)).isEqualTo(queries("0", ARTISTS, "1", ARTISTS));
+    }
+
+    @Test
+    public void inlineQueryInListIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> GraphqlBatching.queries(file + ", " + STATION));
+    }
+
+    @Test
+    public void plainDocumentIsSentAsQuery() {
+        Table table = new Table(List.of("name", "query"));
+        table.addRow(List.of("station", "{ stationWithEvaId(evaId: 8000105) { name } }"));
+        assertThat(GraphqlBatching.queries(table)).isEqualTo(queries("station", "{\"query\":\"{ stationWithEvaId(evaId: 8000105) { name } }\"}"));
+    }
+
+    @Test
+    public void listAndPlainDocumentArePosted() {
+        responses.add("[{\"data\": {\"popular_artists\": null}}]");
+        responses.add("[{\"data\": {\"popular_artists\": null}}]");
+        connector.postBatch(GraphqlBatching.queries("file:" + file + ", " + file), null);
+        assertThat(requests).containsExactly("[{\"query\":\"{ popular_artists { artists { name } } }\"}]",
+                "[{\"query\":\"{ popular_artists { artists { name } } }\"}]");
+        assertThat(sender.path("data.1")).isNotNull();
+
+        requests.clear();
+        responses.add("[{\"data\": {\"stationWithEvaId\": {\"name\": \"Frankfurt (Main) Hbf\"}}}]");
+        Table table = new Table(List.of("name", "query"));
+        table.addRow(List.of("station", "{ stationWithEvaId(evaId: 8000105) { name } }"));
+        connector.postBatch(GraphqlBatching.queries(table), null);
+        assertThat(requests).containsExactly("[{\"query\":\"{ stationWithEvaId(evaId: 8000105) { name } }\"}]");
+        assertThat(sender.path("data.station.stationWithEvaId.name")).isEqualTo("Frankfurt (Main) Hbf");
+    }
+
+    @Test
+    public void missingQueryFileIsRejected() {
+        assertThrows(UncheckedIOException.class, () -> GraphqlBatching.queries("queries/missing.graphql"));
+    }
+
+    @Test
+    public void dataIsMergedUnderName() {
+        responses.add("[{\"data\": {\"popular_artists\": {\"artists\": [{\"name\": \"Pablo Picasso\"}]}}}]");
+        responses.add("[{\"data\": {\"stationWithEvaId\": {\"name\": \"Frankfurt (Main) Hbf\"}}}]");
+        connector.postBatch(queries("artists", ARTISTS, "station", STATION), null);
+        assertThat(sender.path("data.artists.popular_artists.artists[0].name")).isEqualTo("Pablo Picasso");
+        assertThat(sender.path("data.station.stationWithEvaId.name")).isEqualTo("Frankfurt (Main) Hbf");
+        assertThat(sender.path("errors")).isNull();
+    }
+
+    @Test
+    public void errorsAreMergedWithPartialResults() {
+        responses.add("[{\"data\": {\"popular_artists\": null}, \"errors\": [{\"message\": \"timeout\"}]}]");
+        responses.add("[{\"errors\": [{\"message\": \"unknown station\"}]}]");
+        connector.postBatch(queries("artists", ARTISTS, "station", STATION), null);
+        assertThat(sender.path("data.artists")).isNotNull();
+        assertThat(sender.path("data.artists.popular_artists")).isNull();
+        assertThat(sender.path("data.station")).isNull();
+        assertThat(sender.path("errors.message")).isEqualTo(List.of("timeout", "unknown station"));
+        assertThat(sender.path("errors.operation")).isEqualTo(List.of("artists", "station"));
+    }
+
+    @Test
+    public void missingResultsAreRejected() {
+        responses.add("{\"errors\": [{\"message\": \"batching is not supported\"}]}");
+        assertThrows(IllegalStateException.class, () -> connector.postBatch(queries("artists", ARTISTS), null));
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.ajoecker.gauge.graphql;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GraphqlBodyTest {
+    @Test
+    public void jsonQueryFile() {
+        GraphqlBody body = GraphqlBody.of("{\"query\": \"query Artists($size: Int) { popular_artists(size: $size) { name } }\", "
+                + "\"operationName\": \"Artists\", \"variables\": {\"size\": \"%size%\", \"nested\": {\"list\": [1, 2.5, true, null]}}}");
+        assertThat(body.query()).isEqualTo("query Artists($size: Int) { popular_artists(size: $size) { name } }");
+        assertThat(body.operationName()).contains("Artists");
+        assertThat(body.variables()).containsEntry("size", "%size%");
+        assertThat(body.variables().get("nested")).isEqualTo(Map.of("list", Arrays.asList(1L, new BigDecimal("2.5"), true, null)));
+    }
+
+    @Test
+    public void singleQuotedQueryFile() {
+        GraphqlBody body = GraphqlBody.of("{'query': '{ popular_artists { name } }'}");
+        assertThat(body.query()).isEqualTo("{ popular_artists { name } }");
+        assertThat(body.operationName()).isEmpty();
+        assertThat(body.variables()).isEmpty();
+    }
+
+    @Test
+    public void plainQueryDocument() {
+        String document = "query { popular_artists(size: 2) { name } }";
+        GraphqlBody body = GraphqlBody.of(document);
+        assertThat(body.query()).isEqualTo(document);
+        assertThat(body.variables()).isEmpty();
+    }
+
+    @Test
+    public void bodyIsParsedOnce() {
+        String source = "{\"query\": \"{ artists { name } }\"}";
+        assertThat(GraphqlBody.of(source)).isSameAs(GraphqlBody.of(source));
+    }
+
+    @Test
+    public void literals() {
+        assertThat(GraphqlBody.literal("4")).isEqualTo(4L);
+        assertThat(GraphqlBody.literal("-1.5e3")).isEqualTo(new BigDecimal("-1.5e3"));
+        assertThat(GraphqlBody.literal(" true ")).isEqualTo(true);
+        assertThat(GraphqlBody.literal("null")).isNull();
+        assertThat(GraphqlBody.literal("[1, \"a\"]")).isEqualTo(List.of(1L, "a"));
+        assertThat(GraphqlBody.literal("{\"a\": 1}")).isEqualTo(Map.of("a", 1L));
+        assertThat(GraphqlBody.literal("{no json")).isEqualTo("{no json");
+        assertThat(GraphqlBody.literal("Banksy")).isEqualTo("Banksy");
+    }
+
+    @Test
+    public void membersAreCopied() {
+        Map<String, Object> members = GraphqlBody.members(Map.of("query", "{ artists { name } }"));
+        members.put("extensions", Map.of());
+        assertThat(members).containsOnlyKeys("query", "extensions");
+    }
+}
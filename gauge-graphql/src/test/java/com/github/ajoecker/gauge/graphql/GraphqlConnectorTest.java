@@ -0,0 +1,71 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.Sender;
+import com.github.ajoecker.gauge.services.VariableAccessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GraphqlConnectorTest {
+    private static final String QUERY = "{\"query\": \"query Artists($size: Int) { popular_artists(size: $size) { name } }\", "
+            + "\"operationName\": \"Artists\", \"variables\": {\"size\": \"%size%\", \"name\": \"artist %name%\"}}";
+
+    private final TestVariableStorage variableStorage = new TestVariableStorage();
+
+    private GraphqlConnector connector(boolean variables) {
+        return new GraphqlConnector(variableStorage, new Sender(new VariableAccessor() {
+            @Override
+            public boolean graphqlVariables() {
+                return variables;
+            }
+        }));
+    }
+
+    @Test
+    public void variablesAreReplacedInQueryFile() {
+        variableStorage.put("size", 4);
+        variableStorage.put("name", "Banksy");
+        Object body = connector(false).bodyFor(QUERY, Map.of());
+        assertThat(body).isEqualTo(Map.of(
+                "query", "query Artists($size: Int) { popular_artists(size: $size) { name } }",
+                "operationName", "Artists",
+                "variables", Map.of("size", "4", "name", "artist Banksy")));
+    }
+
+    @Test
+    public void queryFileIsParsedOnce() {
+        GraphqlConnector connector = connector(false);
+        String query = "{'query': '{ popular_artists { name } }'}";
+        assertThat(connector.bodyFor(query)).isSameAs(connector.bodyFor(query));
+    }
+
+    @Test
+    public void queryFileMustBeAnObject() {
+        assertThrows(IllegalArgumentException.class, () -> connector(false).bodyFor("- query"));
+    }
+
+    @Test
+    public void variablesAreSentSeparately() {
+        variableStorage.put("size", 4);
+        variableStorage.put("name", "Banksy");
+        Object body = connector(true).bodyFor(QUERY, Map.of());
+        assertThat(body).isEqualTo(Map.of(
+                "query", "query Artists($size: Int) { popular_artists(size: $size) { name } }",
+                "operationName", "Artists",
+                "variables", Map.of("size", 4, "name", "artist Banksy")));
+    }
+
+    @Test
+    public void variablesOfStepTakePrecedence() {
+        variableStorage.put("size", 4);
+        variableStorage.put("name", "Banksy");
+        Object body = connector(true).bodyFor(QUERY, Map.of("size", "2", "filter", "{\"sold\": true}"));
+        assertThat(body).isEqualTo(Map.of(
+                "query", "query Artists($size: Int) { popular_artists(size: $size) { name } }",
+                "operationName", "Artists",
+                "variables", Map.of("size", 2L, "name", "artist Banksy", "filter", Map.of("sold", true))));
+    }
+}
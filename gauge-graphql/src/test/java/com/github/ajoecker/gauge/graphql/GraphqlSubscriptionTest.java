@@ -0,0 +1,296 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.Sender;
+import com.github.ajoecker.gauge.services.VariableAccessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class GraphqlSubscriptionTest {
+    private static final Map<String, Object> BODY = Map.of("query", "subscription { ticker { price } }");
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private WebSocketServer server;
+
+    @AfterEach
+    public void after() throws IOException {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private GraphqlSubscription open(String protocol, int capacity) throws IOException {
+        server = new WebSocketServer(protocol);
+        return GraphqlSubscription.open(httpClient, server.uri(), BODY, Map.of("Authorization", "Bearer token"), capacity, null);
+    }
+
+    private static String event(double price) {
+        return "{\"type\": \"next\", \"id\": \"1\", \"payload\": {\"data\": {\"ticker\": {\"price\": " + price + "}}}}";
+    }
+
+    @Test
+    public void subscribeAfterAcknowledgedInit() throws IOException {
+        GraphqlSubscription subscription = open("graphql-transport-ws", 10);
+        assertThat(server.header("Authorization")).isEqualTo("Bearer token");
+        assertThat(server.receive()).isEqualTo("{\"type\":\"connection_init\",\"payload\":{\"Authorization\":\"Bearer token\"}}");
+        server.send("{\"type\": \"connection_ack\"}");
+        assertThat(server.receive()).isEqualTo("{\"type\":\"subscribe\",\"id\":\"1\",\"payload\":{\"query\":\"subscription { ticker { price } }\"}}");
+        server.send(event(1.5));
+        server.send(event(2.5));
+        assertThat(subscription.await(2, 5_000)).isEqualTo(2);
+        assertThat(subscription.json()).isEqualTo("{\"data\":{\"events\":[{\"ticker\":{\"price\":1.5}},{\"ticker\":{\"price\":2.5}}]}}");
+        assertThat(subscription.failure()).isEmpty();
+    }
+
+    @Test
+    public void olderProtocolIsSpokenIfOnlyOneKnown() throws IOException {
+        GraphqlSubscription subscription = open("graphql-ws", 10);
+        server.receive();
+        server.send("{\"type\": \"connection_ack\"}");
+        assertThat(server.receive()).startsWith("{\"type\":\"start\",\"id\":\"1\"");
+        server.send("{\"type\": \"ka\"}");
+        server.send("{\"type\": \"data\", \"id\": \"1\", \"payload\": {\"data\": {\"ticker\": {\"price\": 3.5}}}}");
+        assertThat(subscription.await(1, 5_000)).isEqualTo(1);
+        subscription.close();
+        assertThat(server.receive()).isEqualTo("{\"type\":\"stop\",\"id\":\"1\"}");
+    }
+
+    @Test
+    public void pingIsAnsweredWithPong() throws IOException {
+        open("graphql-transport-ws", 10);
+        server.receive();
+        server.send("{\"type\": \"ping\"}");
+        assertThat(server.receive()).isEqualTo("{\"type\":\"pong\"}");
+    }
+
+    @Test
+    public void oldestEventsAreDroppedAtCapacity() throws IOException {
+        GraphqlSubscription subscription = open("graphql-transport-ws", 2);
+        server.receive();
+        server.send("{\"type\": \"connection_ack\"}");
+        server.receive();
+        for (int i = 1; i <= 5; i++) {
+            server.send(event(i));
+        }
+        assertThat(subscription.await(5, 5_000)).isEqualTo(5);
+        assertThat(subscription.json()).isEqualTo("{\"data\":{\"events\":[{\"ticker\":{\"price\":4.0}},{\"ticker\":{\"price\":5.0}}]}}");
+        assertThat(subscription.toString()).startsWith("5 events (3 dropped)");
+    }
+
+    @Test
+    public void awaitReturnsAfterTimeout() throws IOException {
+        GraphqlSubscription subscription = open("graphql-transport-ws", 10);
+        server.receive();
+        server.send("{\"type\": \"connection_ack\"}");
+        server.receive();
+        server.send(event(1));
+        long start = System.nanoTime();
+        assertThat(subscription.await(3, 300)).isEqualTo(1);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(250);
+        assertThat(subscription.failure()).isEmpty();
+    }
+
+    @Test
+    public void completeIsSentBeforeClose() throws IOException {
+        GraphqlSubscription subscription = open("graphql-transport-ws", 10);
+        server.receive();
+        server.send("{\"type\": \"connection_ack\"}");
+        server.receive();
+        server.send(event(1));
+        subscription.await(1, 5_000);
+        subscription.close();
+        assertThat(server.receive()).isEqualTo("{\"type\":\"complete\",\"id\":\"1\"}");
+        assertThat(server.receive()).isEqualTo(WebSocketServer.CLOSE);
+        assertThat(subscription.await(2, 5_000)).isEqualTo(1);
+        assertThat(subscription.json()).contains("\"price\":1");
+        assertThat(subscription.failure()).isEmpty();
+    }
+
+    @Test
+    public void closedConnectionFails() throws IOException {
+        GraphqlSubscription subscription = open("graphql-transport-ws", 10);
+        server.receive();
+        server.sendClose(4403, "Forbidden");
+        assertThat(subscription.await(1, 5_000)).isZero();
+        assertThat(subscription.failure()).contains("web socket closed with 4403 Forbidden");
+    }
+
+    @Test
+    public void eventsAreLatestResponseOfConnector() throws IOException {
+        server = new WebSocketServer("graphql-transport-ws");
+        Sender sender = new Sender(new VariableAccessor());
+        sender.setEndpoint("http://127.0.0.1:" + server.uri().getPort() + "/");
+        GraphqlConnector connector = new GraphqlConnector(new TestVariableStorage(), sender);
+        connector.subscribe("{\"query\": \"subscription { ticker { price } }\"}", null);
+        server.receive();
+        server.send("{\"type\": \"connection_ack\"}");
+        server.receive();
+        server.send(event(1.5));
+        assertThat(connector.awaitEvents(1, 5_000)).isEqualTo(1);
+        assertThat(sender.path("data.events.ticker.price")).isEqualTo(List.of(1.5f));
+        connector.release();
+        assertThat(server.receive()).isEqualTo("{\"type\":\"complete\",\"id\":\"1\"}");
+    }
+
+    // a web socket server for a single connection, which speaks only the given subprotocol
+    private static final class WebSocketServer {
+        static final String CLOSE = "close";
+        private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+        private final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        private final Map<String, String> headers = new ConcurrentHashMap<>();
+        private final String protocol;
+        private volatile Socket socket;
+
+        WebSocketServer(String protocol) throws IOException {
+            this.protocol = protocol;
+            Thread thread = new Thread(this::serve, "web socket server");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        URI uri() {
+            return URI.create("ws://127.0.0.1:" + serverSocket.getLocalPort() + "/");
+        }
+
+        String header(String name) {
+            return headers.get(name.toLowerCase());
+        }
+
+        private void serve() {
+            try {
+                socket = serverSocket.accept();
+                InputStream in = socket.getInputStream();
+                String line;
+                while ((line = readLine(in)) != null && !line.isEmpty()) {
+                    int colon = line.indexOf(':');
+                    if (colon > 0) {
+                        headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+                    }
+                }
+                String accept = Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-1")
+                        .digest((headers.get("sec-websocket-key") + GUID).getBytes(StandardCharsets.US_ASCII)));
+                boolean offered = Arrays.stream(headers.getOrDefault("sec-websocket-protocol", "").split(","))
+                        .map(String::trim)
+                        .anyMatch(protocol::equals);
+                String response = "HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                        + "Sec-WebSocket-Accept: " + accept + "\r\n"
+                        + (offered ? "Sec-WebSocket-Protocol: " + protocol + "\r\n" : "") + "\r\n";
+                socket.getOutputStream().write(response.getBytes(StandardCharsets.US_ASCII));
+                readFrames(in);
+            } catch (IOException | NoSuchAlgorithmException e) {
+                // closed by the test
+            }
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return b == -1 && line.length() == 0 ? null : line.toString();
+        }
+
+        private void readFrames(InputStream in) throws IOException {
+            while (true) {
+                int first = in.read();
+                if (first == -1) {
+                    return;
+                }
+                int second = in.read();
+                long length = second & 0x7F;
+                if (length == 126) {
+                    length = (in.read() << 8) | in.read();
+                } else if (length == 127) {
+                    length = 0;
+                    for (int i = 0; i < 8; i++) {
+                        length = (length << 8) | in.read();
+                    }
+                }
+                byte[] mask = (second & 0x80) != 0 ? in.readNBytes(4) : new byte[4];
+                byte[] payload = in.readNBytes((int) length);
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i % 4];
+                }
+                int opcode = first & 0x0F;
+                if (opcode == 1) {
+                    received.add(new String(payload, StandardCharsets.UTF_8));
+                } else if (opcode == 8) {
+                    received.add(CLOSE);
+                    write(8, payload);
+                    return;
+                }
+            }
+        }
+
+        String receive() {
+            try {
+                String message = received.poll(5, TimeUnit.SECONDS);
+                assertThat(message).as("message from client").isNotNull();
+                return message;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void send(String message) throws IOException {
+            write(1, message.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void sendClose(int statusCode, String reason) throws IOException {
+            byte[] text = reason.getBytes(StandardCharsets.UTF_8);
+            byte[] payload = new byte[text.length + 2];
+            payload[0] = (byte) (statusCode >> 8);
+            payload[1] = (byte) statusCode;
+            System.arraycopy(text, 0, payload, 2, text.length);
+            write(8, payload);
+        }
+
+        private synchronized void write(int opcode, byte[] payload) throws IOException {
+            OutputStream out = socket.getOutputStream();
+            out.write(0x80 | opcode);
+            if (payload.length < 126) {
+                out.write(payload.length);
+            } else {
+                out.write(126);
+                out.write(payload.length >> 8);
+                out.write(payload.length & 0xFF);
+            }
+            out.write(payload);
+            out.flush();
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+            if (socket != null) {
+                socket.close();
+            }
+        }
+    }
+}
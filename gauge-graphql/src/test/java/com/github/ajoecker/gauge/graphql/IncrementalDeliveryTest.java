@@ -0,0 +1,128 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.HttpClientTransport;
+import com.github.ajoecker.gauge.services.Sender;
+import com.github.ajoecker.gauge.services.Transport;
+import com.github.ajoecker.gauge.services.VariableAccessor;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IncrementalDeliveryTest {
+    private static final String INITIAL = "{\"data\": {\"artist\": {\"name\": \"Banksy\"}}, \"pending\": [{\"id\": \"0\", \"path\": [\"artist\"]}], \"hasNext\": true}";
+    private static final String PATCH = "{\"incremental\": [{\"id\": \"0\", \"data\": {\"bio\": \"street art\"}}], \"completed\": [{\"id\": \"0\"}], \"hasNext\": false}";
+    private static final String PART = "\r\n--graphql\r\nContent-Type: application/json; charset=utf-8\r\n\r\n";
+    // the response split into chunks: a delimiter inside a chunk, headers and the last delimiter split across chunks
+    private static final List<String> CHUNKS = List.of(
+            PART + INITIAL + "\r\n--graphql\r\nContent-Type: appl",
+            "ication/json; charset=utf-8\r\n\r\n" + PATCH + "\r\n--gra",
+            "phql--\r\n");
+
+    private final Map<String, String> requestHeaders = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private Sender sender;
+
+    @BeforeEach
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            requestHeaders.put("Accept", exchange.getRequestHeaders().getFirst("Accept"));
+            exchange.getResponseHeaders().add("Content-Type", "multipart/mixed; boundary=\"graphql\"; deferSpec=20220824");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (String chunk : CHUNKS) {
+                    body.write(chunk.getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                    Thread.sleep(100);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        if (sender != null) {
+            sender.shutdown();
+        }
+        server.stop(0);
+    }
+
+    private static List<String> parts(String body, String boundary) throws IOException {
+        List<String> payloads = new ArrayList<>();
+        IncrementalDelivery.readParts(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), boundary, payloads::add);
+        return payloads;
+    }
+
+    private GraphqlConnector connector(Transport transport) {
+        VariableAccessor variableAccessor = new VariableAccessor() {
+            @Override
+            public boolean graphqlIncremental() {
+                return true;
+            }
+        };
+        sender = transport == null ? new Sender(variableAccessor) : new Sender(variableAccessor, transport);
+        sender.setEndpoint("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        return new GraphqlConnector(new TestVariableStorage(), sender);
+    }
+
+    @Test
+    public void partsOfOneChunk() throws IOException {
+        assertThat(parts(String.join("", CHUNKS), "graphql")).containsExactly(INITIAL, PATCH);
+    }
+
+    @Test
+    public void partsWithoutCarriageReturn() throws IOException {
+        String body = "--graphql\nContent-Type: application/json\n\n" + INITIAL + "\n--graphql\nContent-Type: application/json\n\n"
+                + PATCH + "\n--graphql--\n";
+        assertThat(parts(body, "graphql")).containsExactly(INITIAL, PATCH);
+    }
+
+    @Test
+    public void partsAfterLastDelimiterAreIgnored() throws IOException {
+        String body = PART + INITIAL + "\r\n--graphql--\r\n" + PART + PATCH;
+        assertThat(parts(body, "graphql")).containsExactly(INITIAL);
+    }
+
+    @Test
+    public void lastPartWithoutClosingDelimiter() throws IOException {
+        assertThat(parts("\r\n---\r\n\r\n" + INITIAL + "\r\n---\r\n\r\n" + PATCH, "-")).containsExactly(INITIAL, PATCH);
+    }
+
+    @Test
+    public void responseIsReadByRestAssured() {
+        GraphqlConnector connector = connector(null);
+        connector.post("{\"query\": \"{ artist { name ... @defer { bio } } }\"}", "", null);
+        assertThat(requestHeaders.get("Accept")).startsWith("multipart/mixed");
+        assertThat(sender.path("data.artist.name")).isEqualTo("Banksy");
+        assertThat(sender.path("data.artist.bio")).isEqualTo("street art");
+        assertThat(connector.incrementalResult().patches()).isEqualTo(1);
+    }
+
+    @Test
+    public void responseIsStreamedByHttpClient() {
+        GraphqlConnector connector = connector(new HttpClientTransport(HttpClient.Version.HTTP_1_1));
+        connector.post("{\"query\": \"{ artist { name ... @defer { bio } } }\"}", "", null);
+        assertThat(sender.path("data.artist.bio")).isEqualTo("street art");
+        IncrementalResult result = connector.incrementalResult();
+        assertThat(result.patches()).isEqualTo(1);
+        assertThat(result.last() - result.initial()).isGreaterThan(150);
+    }
+}
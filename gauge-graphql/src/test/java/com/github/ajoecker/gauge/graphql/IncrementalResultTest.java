@@ -0,0 +1,74 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.ResponseDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IncrementalResultTest {
+    private static Object read(IncrementalResult result, String path) {
+        return ResponseDocument.of(result.json()).read(path);
+    }
+
+    @Test
+    public void deferredDataIsMergedByPendingId() {
+        IncrementalResult result = new IncrementalResult();
+        result.accept("{\"data\": {\"artist\": {\"name\": \"Banksy\"}}, \"pending\": [{\"id\": \"0\", \"path\": [\"artist\"]}], \"hasNext\": true}", 1_000_000);
+        result.accept("{\"incremental\": [{\"id\": \"0\", \"data\": {\"bio\": \"street art\"}}], \"completed\": [{\"id\": \"0\"}], \"hasNext\": false}", 3_000_000);
+        assertThat(read(result, "data.artist.name")).isEqualTo("Banksy");
+        assertThat(read(result, "data.artist.bio")).isEqualTo("street art");
+        assertThat(read(result, "hasNext")).isNull();
+        assertThat(read(result, "pending")).isNull();
+        assertThat(result.patches()).isEqualTo(1);
+        assertThat(result.initial()).isEqualTo(1.0);
+        assertThat(result.last()).isEqualTo(3.0);
+    }
+
+    @Test
+    public void streamedItemsAreAppended() {
+        IncrementalResult result = new IncrementalResult();
+        result.accept("{\"data\": {\"artists\": [{\"name\": \"Banksy\"}]}, \"pending\": [{\"id\": \"1\", \"path\": [\"artists\"]}], \"hasNext\": true}", 0);
+        result.accept("{\"incremental\": [{\"id\": \"1\", \"items\": [{\"name\": \"Pablo Picasso\"}]}], \"hasNext\": true}", 0);
+        result.accept("{\"incremental\": [{\"id\": \"1\", \"items\": [{\"name\": \"Frida Kahlo\"}]}], \"hasNext\": false}", 0);
+        assertThat(read(result, "data.artists.name")).isEqualTo(List.of("Banksy", "Pablo Picasso", "Frida Kahlo"));
+        assertThat(result.patches()).isEqualTo(2);
+    }
+
+    @Test
+    public void subPathAndPathFormatsAreMerged() {
+        IncrementalResult result = new IncrementalResult();
+        result.accept("{\"data\": {\"artist\": {\"works\": [{\"title\": \"Girl with Balloon\"}]}}, "
+                + "\"pending\": [{\"id\": \"0\", \"path\": [\"artist\"]}], \"hasNext\": true}", 0);
+        result.accept("{\"incremental\": [{\"id\": \"0\", \"subPath\": [\"works\", 0], \"data\": {\"year\": 2002}}], \"hasNext\": true}", 0);
+        result.accept("{\"path\": [\"artist\"], \"data\": {\"name\": \"Banksy\"}, \"hasNext\": false}", 0);
+        assertThat(read(result, "data.artist.works[0].year")).isEqualTo(2002);
+        assertThat(read(result, "data.artist.name")).isEqualTo("Banksy");
+    }
+
+    @Test
+    public void errorsOfPatchesAreCollected() {
+        IncrementalResult result = new IncrementalResult();
+        result.accept("{\"data\": {\"artist\": {}}, \"pending\": [{\"id\": \"0\", \"path\": [\"artist\"]}], \"hasNext\": true}", 0);
+        result.accept("{\"completed\": [{\"id\": \"0\", \"errors\": [{\"message\": \"bio not available\"}]}], \"hasNext\": false}", 0);
+        assertThat(read(result, "errors.message")).isEqualTo(List.of("bio not available"));
+    }
+
+    @Test
+    public void unknownIdIsRejected() {
+        IncrementalResult result = new IncrementalResult();
+        result.accept("{\"data\": {}, \"hasNext\": true}", 0);
+        assertThrows(IllegalStateException.class, () -> result.accept("{\"incremental\": [{\"id\": \"7\", \"data\": {}}]}", 0));
+    }
+
+    @Test
+    public void resultWithoutPayloadHasNoArrival() {
+        IncrementalResult result = new IncrementalResult();
+        assertThat(result.payloads()).isZero();
+        assertThat(result.toString()).isEqualTo("no payload");
+        assertThrows(IllegalStateException.class, result::initial);
+        assertThrows(IllegalStateException.class, result::last);
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.ajoecker.gauge.graphql;
+
+import com.github.ajoecker.gauge.services.HttpClientTransport;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistedQueriesTest {
+    private static final String QUERY = "{ artists { name } }";
+    private static final String HASH = "9f4368358289753d80b9b6a3f503442581cb69ab0b959c132919bfc6f3a6f64e";
+
+    private static Response responseWith(String body) {
+        HttpHeaders headers = HttpHeaders.of(Map.of("Content-Type", List.of("application/json")), (name, value) -> true);
+        return HttpClientTransport.toResponse(HttpClient.Version.HTTP_1_1, 200, headers, body.getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    @Test
+    public void queryIsSentByItsHash() {
+        Map<String, Object> hashed = new PersistedQueries().hashed(Map.of("query", QUERY, "extensions", Map.of("trace", true)));
+        assertThat(hashed).doesNotContainKey("query");
+        assertThat(hashed.get("extensions")).isEqualTo(Map.of("trace", true,
+                "persistedQuery", Map.of("version", 1, "sha256Hash", HASH)));
+    }
+
+    @Test
+    public void queryIsRegisteredWithItsHash() {
+        Map<String, Object> registering = new PersistedQueries().registering(Map.of("query", QUERY));
+        assertThat(registering).containsEntry("query", QUERY);
+        assertThat(registering.get("extensions")).isEqualTo(Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", HASH)));
+    }
+
+    @Test
+    public void unknownHashIsDetected() {
+        assertThat(PersistedQueries.isNotFound(responseWith("{\"errors\": [{\"message\": \"PersistedQueryNotFound\"}]}"))).isTrue();
+        assertThat(PersistedQueries.isNotFound(responseWith("{\"errors\": [{\"message\": \"unknown\", "
+                + "\"extensions\": {\"code\": \"PERSISTED_QUERY_NOT_FOUND\"}}]}"))).isTrue();
+        assertThat(PersistedQueries.isNotFound(responseWith("{\"data\": {\"name\": \"PersistedQueryNotFound\"}}"))).isFalse();
+    }
+
+    @Test
+    public void hitsAndRegistrationsAreCounted() {
+        PersistedQueries persistedQueries = new PersistedQueries();
+        persistedQueries.hit(Map.of("query", QUERY));
+        persistedQueries.hit(Map.of("query", QUERY));
+        persistedQueries.registered();
+        assertThat(persistedQueries.summary()).isEqualTo("persisted queries: 2 hits, 1 registrations, 40 bytes of queries not sent");
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.ajoecker.gauge.graphql;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SchemaValidatorTest {
+    private static final String SCHEMA = "type Query {\n"
+            + "  popular_artists(size: Int): [Artist]\n"
+            + "}\n"
+            + "type Artist {\n"
+            + "  name: String\n"
+            + "}\n";
+    private static final String QUERY = "query Artists($size: Int) { popular_artists(size: $size) { name } }";
+
+    private Path schema;
+    private SchemaValidator validator;
+
+    @BeforeEach
+    public void before() throws IOException {
+        schema = Files.createTempFile("schema", ".graphqls");
+        Files.writeString(schema, SCHEMA);
+        validator = SchemaValidator.load(schema.toString());
+    }
+
+    @AfterEach
+    public void after() throws IOException {
+        Files.deleteIfExists(schema);
+    }
+
+    @Test
+    public void validQuery() {
+        validator.validate(QUERY, "Artists");
+        validator.validate("{ popular_artists { name } }", null);
+        assertThat(validator.validatedQueries()).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidFieldIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> validator.validate("{ popular_artists { unknownName } }", null));
+        assertThat(e.getMessage()).contains("unknownName");
+    }
+
+    @Test
+    public void invalidSyntaxIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validate("{ popular_artists { name }", null));
+    }
+
+    @Test
+    public void operationMustBeInDocument() {
+        assertThrows(IllegalArgumentException.class, () -> validator.validate(QUERY, "Artworks"));
+        assertThrows(IllegalArgumentException.class,
+                () -> validator.validate(QUERY + " query Names { popular_artists { name } }", null));
+    }
+
+    @Test
+    public void queryIsValidatedOncePerOperation() {
+        validator.validate(QUERY, "Artists");
+        validator.validate(QUERY, "Artists");
+        assertThat(validator.validatedQueries()).isEqualTo(1);
+        assertThrows(IllegalArgumentException.class, () -> validator.validate(QUERY, "Names"));
+        assertThrows(IllegalArgumentException.class, () -> validator.validate(QUERY, "Names"));
+        assertThat(validator.validatedQueries()).isEqualTo(2);
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.ajoecker.gauge.rest;
 
+import com.github.ajoecker.gauge.services.Poller;
+import com.github.ajoecker.gauge.services.common.ExpectedValues;
 import com.github.ajoecker.gauge.services.common.Service;
+import com.thoughtworks.gauge.Gauge;
 import com.thoughtworks.gauge.Step;
 import com.thoughtworks.gauge.Table;
 
@@ -22,6 +25,17 @@ public class Rest extends Service<RestConnector> {
         connector().get(resource, "", authenticationHandler);
     }
 
+    @Step({"Then polling <resource> until <path> is <value> within <timeout> s",
+            "And polling <resource> until <path> is <value> within <timeout> s",
+            "Then polling <resource> until <path> is <value> within <timeout>s",
+            "And polling <resource> until <path> is <value> within <timeout>s"})
+    public void pollingUntil(String resource, String path, Object value, long timeout) {
+        get(resource);
+        Poller.Result result = Poller.of(sender.getVariableAccessor()).until(
+                () -> ExpectedValues.compare(value, connector().thenIs(path)), () -> get(resource), timeout * 1000);
+        Gauge.writeMessage(path + " of " + resource + " is " + value + " after " + result);
+    }
+
     @Step({"When getting <query> with <parameters>", "And getting <query> with <parameters>"})
     public void gettingParameters(String query, Object parameters) {
         if (parameters instanceof Table) {
@@ -64,4 +78,28 @@ public class Rest extends Service<RestConnector> {
     public void posting(String query, String path) {
         connector().post(query, path, authenticationHandler);
     }
+
+    @Step({"When getting <resource> <times> times with concurrency <concurrency>",
+            "And getting <resource> <times> times with concurrency <concurrency>"})
+    public void getRepeatedly(String resource, int times, int concurrency) {
+        Gauge.writeMessage(connector().getRepeatedly(resource, times, concurrency, authenticationHandler).toString());
+    }
+
+    @Step({"When putting <query> to <path> <times> times with concurrency <concurrency>",
+            "And putting <query> to <path> <times> times with concurrency <concurrency>"})
+    public void puttingRepeatedly(String query, String path, int times, int concurrency) {
+        Gauge.writeMessage(connector().putRepeatedly(query, path, times, concurrency, authenticationHandler).toString());
+    }
+
+    @Step({"When deleting <query> from <path> <times> times with concurrency <concurrency>",
+            "And deleting <query> from <path> <times> times with concurrency <concurrency>"})
+    public void deleteRepeatedly(String query, String path, int times, int concurrency) {
+        Gauge.writeMessage(connector().deleteRepeatedly(query, path, times, concurrency, authenticationHandler).toString());
+    }
+
+    @Step({"When posting <query> to <path> <times> times with concurrency <concurrency>",
+            "And posting <query> to <path> <times> times with concurrency <concurrency>"})
+    public void postingRepeatedly(String query, String path, int times, int concurrency) {
+        Gauge.writeMessage(connector().postRepeatedly(query, path, times, concurrency, authenticationHandler).toString());
+    }
 }
@@ -2,11 +2,14 @@ package com.github.ajoecker.gauge.rest;
 
 import com.github.ajoecker.gauge.random.data.VariableStorage;
 import com.github.ajoecker.gauge.services.Connector;
+import com.github.ajoecker.gauge.services.LoadResult;
 import com.github.ajoecker.gauge.services.Sender;
 import com.github.ajoecker.gauge.services.login.AuthenticationHandler;
 import com.google.common.base.Strings;
 import org.tinylog.Logger;
 
+import java.util.function.Supplier;
+
 public class RestConnector extends Connector {
     public RestConnector(Sender sender) {
         super(sender);
@@ -51,4 +54,42 @@ public class RestConnector extends Connector {
         Logger.info("deleting from {}", deletePath);
         sender.setResponse(sender.sendDelete(authenticationHandler, deletePath));
     }
+
+    /**
+     * Sends a get repeatedly with the given concurrency.
+     *
+     * @see #get(String, String, AuthenticationHandler)
+     * @see Sender#sendRepeatedly(int, int, Supplier)
+     */
+    LoadResult getRepeatedly(String resource, int times, int concurrency, AuthenticationHandler authenticationHandler) {
+        String queryPath = replaceVariables(sender.getCompleteEndpoint(resource));
+        Logger.info("getting {} times with concurrency {} from {}", times, concurrency, queryPath);
+        return sender.sendRepeatedly(times, concurrency, () -> sender.sendGet(authenticationHandler, queryPath));
+    }
+
+    /**
+     * Sends a put repeatedly with the given concurrency.
+     *
+     * @see #put(String, String, AuthenticationHandler)
+     * @see Sender#sendRepeatedly(int, int, Supplier)
+     */
+    LoadResult putRepeatedly(String query, String path, int times, int concurrency, AuthenticationHandler authenticationHandler) {
+        String theEndpoint = sender.getCompleteEndpoint(replaceVariables(path));
+        Logger.info("putting {} times with concurrency {} to {}", times, concurrency, theEndpoint);
+        Object object = bodyFor(replaceVariables(query));
+        return sender.sendRepeatedly(times, concurrency, () -> sender.sendPut(authenticationHandler, theEndpoint, object));
+    }
+
+    /**
+     * Sends a delete repeatedly with the given concurrency.
+     *
+     * @see #deleteWithLogin(String, String, AuthenticationHandler)
+     * @see Sender#sendRepeatedly(int, int, Supplier)
+     */
+    LoadResult deleteRepeatedly(String query, String path, int times, int concurrency, AuthenticationHandler authenticationHandler) {
+        String base = sender.getCompleteEndpoint(replaceVariables(path));
+        String deletePath = sender.checkTrailingSlash(base, replaceVariables(query));
+        Logger.info("deleting {} times with concurrency {} from {}", times, concurrency, deletePath);
+        return sender.sendRepeatedly(times, concurrency, () -> sender.sendDelete(authenticationHandler, deletePath));
+    }
 }
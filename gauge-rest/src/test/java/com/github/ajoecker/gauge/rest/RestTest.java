@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RestTest {
     VariableAccessor variableAccessor = new VariableAccessor() {
@@ -68,4 +69,23 @@ public class RestTest {
         Rest delete = new Rest();
         delete.delete("4", "de/%customers%");
     }
+
+    @Test
+    public void deleteRepeatedly() {
+        AtomicInteger deletes = new AtomicInteger();
+        Sender sender = new Sender(variableAccessor) {
+            @Override
+            public Response sendDelete(AuthenticationHandler loginHandler, String deletePath) {
+                Assertions.assertThat(deletePath).isEqualTo("http://endpoint/de/customers/4");
+                deletes.incrementAndGet();
+                return Mockito.mock(Response.class);
+            }
+        };
+        TestVariableStorage variableStorage = new TestVariableStorage();
+        variableStorage.put("foo", 4);
+        Registry.get().init("bar", sender1 -> new RestConnector(variableStorage, sender));
+        Rest delete = new Rest();
+        delete.deleteRepeatedly("%foo%", "de/customers", 10, 3);
+        Assertions.assertThat(deletes.get()).isEqualTo(10);
+    }
 }
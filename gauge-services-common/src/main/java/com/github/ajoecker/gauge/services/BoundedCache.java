@@ -0,0 +1,50 @@
+package com.github.ajoecker.gauge.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Keeps values that are computed again and again from the same key, like a parsed query or a compiled path, but not
+ * without bound: once the maximal number of values is kept, all of them are dropped and the cache fills up anew.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class BoundedCache<K, V> {
+    private static final int MAX_CACHED = 10_000;
+
+    private final int maxSize;
+    private final Map<K, V> values = new ConcurrentHashMap<>();
+
+    public BoundedCache() {
+        this(MAX_CACHED);
+    }
+
+    public BoundedCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the value of the given key, which is computed and kept, if it is not kept yet.
+     *
+     * @param key     the key
+     * @param compute computes the value of the key, must not return <code>null</code>
+     * @return the value
+     */
+    public V get(K key, Function<? super K, ? extends V> compute) {
+        V value = values.get(key);
+        if (value == null) {
+            if (values.size() >= maxSize) {
+                values.clear();
+            }
+            value = compute.apply(key);
+            values.put(key, value);
+        }
+        return value;
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.ajoecker.gauge.services;
+
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.tinylog.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compresses the bodies of requests and records the size of each request and response, both as sent over the
+ * network and uncompressed.
+ * <p>
+ * Request bodies are only compressed, if configured via <code>gauge.service.compression</code>, see
+ * {@link VariableAccessor#compression()}. Responses are decompressed by the {@link Transport}, which announces the
+ * encodings given in <code>gauge.service.accept.encoding</code>, see {@link VariableAccessor#acceptEncoding()}.
+ */
+public class Compression implements OrderedFilter {
+    public enum Encoding {
+        NONE, GZIP, DEFLATE
+    }
+
+    private static final Pattern CHARSET = Pattern.compile("charset=\"?([^;\"\\s]+)", Pattern.CASE_INSENSITIVE);
+    // the bytes of the current response as received over the network, counted by the transport
+    private static final ThreadLocal<AtomicLong> wireBytes = new ThreadLocal<>();
+
+    private final Encoding encoding;
+    private final int minSize;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong sentOnWire = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong receivedOnWire = new AtomicLong();
+
+    public Compression(Encoding encoding, int minSize) {
+        this.encoding = encoding;
+        this.minSize = minSize;
+    }
+
+    /**
+     * Creates the compression that is configured in the given {@link VariableAccessor}.
+     *
+     * @param variableAccessor the configuration
+     * @return the configured compression
+     * @throws IllegalArgumentException if the compression is unknown
+     */
+    public static Compression of(VariableAccessor variableAccessor) {
+        Encoding encoding = Transport.named(variableAccessor.compression(), Encoding.values(), "compression");
+        Logger.info("request compression = {}, accepted encodings = {}", encoding, variableAccessor.acceptEncoding());
+        return new Compression(encoding, variableAccessor.compressionMinSize());
+    }
+
+    /**
+     * Returns the encodings of the given comma separated list, like <code>gzip,deflate</code>.
+     *
+     * @param encodings the list of encodings
+     * @return the encodings, which is empty for <code>none</code>
+     * @throws IllegalArgumentException if an encoding is unknown
+     */
+    public static List<Encoding> encodings(String encodings) {
+        return Arrays.stream(encodings.split(","))
+                .map(String::trim)
+                .filter(encoding -> !encoding.isEmpty())
+                .map(encoding -> Transport.named(encoding, Encoding.values(), "encoding"))
+                .filter(encoding -> encoding != Encoding.NONE)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int getOrder() {
+        // after all other filters have modified the body, but before a transport sends the request
+        return LOWEST_PRECEDENCE - 1;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        byte[] body = bodyOf(requestSpec);
+        long requestSize = body.length;
+        long requestWireSize = requestSize;
+        if (encoding != Encoding.NONE && requestSize >= minSize && requestSpec.getHeaders().getValue("Content-Encoding") == null) {
+            byte[] encoded = encode(body, encoding);
+            requestSpec.body(encoded);
+            requestSpec.header("Content-Encoding", encoding.toString().toLowerCase());
+            requestWireSize = encoded.length;
+        }
+
+        AtomicLong responseWireSize = new AtomicLong(-1);
+        wireBytes.set(responseWireSize);
+        try {
+            Response response = ctx.next(requestSpec, responseSpec);
+            long responseSize = response.asByteArray().length;
+            record(requestSpec, requestSize, requestWireSize, responseSize,
+                    responseWireSize.get() < 0 ? responseSize : responseWireSize.get());
+            return response;
+        } finally {
+            wireBytes.remove();
+        }
+    }
+
+    private void record(FilterableRequestSpecification requestSpec, long requestSize, long requestWireSize, long responseSize, long responseWireSize) {
+        requests.incrementAndGet();
+        sent.addAndGet(requestSize);
+        sentOnWire.addAndGet(requestWireSize);
+        received.addAndGet(responseSize);
+        receivedOnWire.addAndGet(responseWireSize);
+        Logger.info("{} {}: sent {} bytes as {} bytes, received {} bytes as {} bytes", requestSpec.getMethod(),
+                requestSpec.getURI(), requestSize, requestWireSize, responseSize, responseWireSize);
+    }
+
+    private static byte[] bodyOf(FilterableRequestSpecification requestSpec) {
+        Object body = requestSpec.getBody();
+        if (body == null) {
+            return new byte[0];
+        }
+        if (body instanceof byte[]) {
+            return (byte[]) body;
+        }
+        return body.toString().getBytes(charsetOf(requestSpec.getContentType()));
+    }
+
+    private static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            Matcher matcher = CHARSET.matcher(contentType);
+            if (matcher.find()) {
+                return Charset.forName(matcher.group(1));
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Counts the given number of bytes of the current response as received over the network. Called by a
+     * {@link Transport} while it reads the response.
+     *
+     * @param bytes the number of received bytes
+     */
+    static void countWireBytes(long bytes) {
+        AtomicLong counter = wireBytes.get();
+        if (counter != null) {
+            counter.updateAndGet(count -> Math.max(count, 0) + bytes);
+        }
+    }
+
+    /**
+     * Compresses the given data.
+     *
+     * @param data     the data to compress
+     * @param encoding the encoding to use
+     * @return the compressed data
+     */
+    public static byte[] encode(byte[] data, Encoding encoding) {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(Math.max(data.length / 4, 64));
+        try (OutputStream out = encoding == Encoding.GZIP ? new GZIPOutputStream(encoded) : new DeflaterOutputStream(encoded)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Decompresses the given data according to the given <code>Content-Encoding</code>, which lists the encodings in
+     * the order they were applied, like <code>deflate, gzip</code>.
+     *
+     * @param data            the data to decompress
+     * @param contentEncoding the value of the <code>Content-Encoding</code> header, may be <code>null</code>
+     * @return the decompressed data, or the given data itself, if it is not encoded or an encoding is unknown, like
+     * <code>br</code>
+     */
+    public static byte[] decode(byte[] data, String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank()) {
+            return data;
+        }
+        List<Encoding> encodings = new ArrayList<>();
+        for (String each : contentEncoding.split(",")) {
+            String name = each.trim();
+            if (!name.isEmpty() && !"identity".equalsIgnoreCase(name)) {
+                Optional<Encoding> encoding = Arrays.stream(Encoding.values())
+                        .filter(e -> e != Encoding.NONE && e.name().equalsIgnoreCase(name))
+                        .findFirst();
+                if (encoding.isEmpty()) {
+                    Logger.warn("cannot decode content encoding {}, the response is kept as received", contentEncoding);
+                    return data;
+                }
+                encodings.add(0, encoding.get());
+            }
+        }
+        byte[] decoded = data;
+        for (Encoding encoding : encodings) {
+            decoded = decode(decoded, encoding);
+        }
+        return decoded;
+    }
+
+    private static byte[] decode(byte[] data, Encoding encoding) {
+        if (encoding == Encoding.GZIP) {
+            return readAll(() -> new GZIPInputStream(new ByteArrayInputStream(data)));
+        }
+        try {
+            return readAll(() -> new InflaterInputStream(new ByteArrayInputStream(data)));
+        } catch (UncheckedIOException e) {
+            // some servers send raw deflate data without the zlib header
+            return readAll(() -> new InflaterInputStream(new ByteArrayInputStream(data), new Inflater(true)));
+        }
+    }
+
+    private interface StreamSupplier {
+        InputStream open() throws IOException;
+    }
+
+    private static byte[] readAll(StreamSupplier supplier) {
+        try (InputStream in = supplier.open()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns a human readable summary of all sent and received bytes.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        long total = sent.get() + received.get();
+        long onWire = sentOnWire.get() + receivedOnWire.get();
+        long saved = total == 0 ? 0 : Math.round(100.0 * (total - onWire) / total);
+        return "compression: " + requests.get() + " requests, sent " + sent.get() + " bytes as " + sentOnWire.get()
+                + " bytes, received " + received.get() + " bytes as " + receivedOnWire.get() + " bytes, saved "
+                + saved + "%";
+    }
+}
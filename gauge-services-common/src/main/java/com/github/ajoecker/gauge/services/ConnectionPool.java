@@ -0,0 +1,314 @@
+package com.github.ajoecker.gauge.services;
+
+import io.restassured.config.DecoderConfig;
+import io.restassured.config.HttpClientConfig;
+import io.restassured.config.RestAssuredConfig;
+import io.restassured.specification.RequestSpecification;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.HttpParams;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+import org.tinylog.Logger;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * The default {@link Transport}, which sends all requests with REST Assured over a pool of keep-alive connections
+ * that is shared by all requests of a {@link Sender}.
+ * <p>
+ * The pool is created with the first request and configured via the gauge environment, see
+ * {@link VariableAccessor#poolMaxTotal()}, {@link VariableAccessor#poolMaxPerRoute()},
+ * {@link VariableAccessor#poolKeepAlive()} and {@link VariableAccessor#poolIdleTimeout()}.
+ * <p>
+ * REST Assured casts the http client of its configuration to the deprecated <code>AbstractHttpClient</code>, so that
+ * the client built with <code>HttpClientBuilder</code> and its <code>PoolingHttpClientConnectionManager</code> cannot
+ * be used. The pool is therefore built on the deprecated API that REST Assured needs.
+ */
+@SuppressWarnings("deprecation")
+public class ConnectionPool implements Transport {
+    private final VariableAccessor variableAccessor;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+    private PoolingClientConnectionManager connectionManager;
+    private ScheduledExecutorService evictor;
+    private RestAssuredConfig config;
+
+    public ConnectionPool(VariableAccessor variableAccessor) {
+        this.variableAccessor = variableAccessor;
+    }
+
+    @Override
+    public RequestSpecification prepare(RequestSpecification request) {
+        return request.config(config());
+    }
+
+    /**
+     * Returns the configuration that lets a request use the pooled http client.
+     *
+     * @return the configuration for a request
+     */
+    public synchronized RestAssuredConfig config() {
+        if (config == null) {
+            DefaultHttpClient httpClient = createHttpClient();
+            config = RestAssuredConfig.config().httpClient(HttpClientConfig.httpClientConfig()
+                    .reuseHttpClientInstance()
+                    .httpClientFactory(() -> httpClient))
+                    .decoderConfig(decoderConfig());
+        }
+        return config;
+    }
+
+    private DecoderConfig decoderConfig() {
+        List<DecoderConfig.ContentDecoder> decoders = Compression.encodings(variableAccessor.acceptEncoding()).stream()
+                .map(encoding -> DecoderConfig.ContentDecoder.valueOf(encoding.toString()))
+                .collect(Collectors.toList());
+        if (decoders.isEmpty()) {
+            return DecoderConfig.decoderConfig().noContentDecoders();
+        }
+        return DecoderConfig.decoderConfig().contentDecoders(decoders.get(0),
+                decoders.subList(1, decoders.size()).toArray(new DecoderConfig.ContentDecoder[0]));
+    }
+
+    private DefaultHttpClient createHttpClient() {
+        connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault()) {
+            @Override
+            protected ClientConnectionOperator createConnectionOperator(SchemeRegistry schemeRegistry) {
+                return new CountingConnectionOperator(schemeRegistry);
+            }
+        };
+        connectionManager.setMaxTotal(variableAccessor.poolMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(variableAccessor.poolMaxPerRoute());
+        Logger.info("connection pool created with max {} connections and {} per route",
+                connectionManager.getMaxTotal(), connectionManager.getDefaultMaxPerRoute());
+
+        DefaultHttpClient httpClient = new DefaultHttpClient(connectionManager) {
+            @Override
+            protected HttpRequestExecutor createRequestExecutor() {
+                return new TimingRequestExecutor();
+            }
+        };
+        long keepAlive = variableAccessor.poolKeepAlive();
+        httpClient.setKeepAliveStrategy((response, context) -> {
+            long announced = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return announced > 0 ? Math.min(announced, keepAlive) : keepAlive;
+        });
+        httpClient.addRequestInterceptor((request, context) -> requests.incrementAndGet());
+        // added before the decompression of REST Assured, so that the compressed bytes are counted
+        httpClient.addResponseInterceptor((response, context) -> {
+            if (response.getEntity() != null) {
+                response.setEntity(new CountingEntity(response.getEntity()));
+            }
+        });
+        startEviction(variableAccessor.poolIdleTimeout());
+        return httpClient;
+    }
+
+    private void startEviction(long idleTimeout) {
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gauge-service-connection-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(idleTimeout / 2, 1000);
+        evictor.scheduleAtFixedRate(() -> {
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns a snapshot of the current usage of the pool.
+     *
+     * @return the statistics of the pool
+     */
+    public synchronized PoolStatistics statistics() {
+        if (connectionManager == null) {
+            return new PoolStatistics(0, 0, 0, 0, 0);
+        }
+        PoolStats stats = connectionManager.getTotalStats();
+        return new PoolStatistics(stats.getLeased(), stats.getAvailable(), stats.getMax(), opened.get(), requests.get());
+    }
+
+    @Override
+    public String summary() {
+        return "connection pool: " + statistics();
+    }
+
+    /**
+     * Closes all connections of the pool. A succeeding request creates a new pool.
+     */
+    @Override
+    public synchronized void shutdown() {
+        if (connectionManager != null) {
+            Logger.info("shutting down connection pool: {}", statistics());
+            evictor.shutdownNow();
+            connectionManager.shutdown();
+            connectionManager = null;
+            config = null;
+        }
+    }
+
+    private class CountingConnectionOperator extends DefaultClientConnectionOperator {
+        CountingConnectionOperator(SchemeRegistry schemeRegistry) {
+            super(schemeRegistry);
+        }
+
+        @Override
+        public OperatedClientConnection createConnection() {
+            opened.incrementAndGet();
+            return super.createConnection();
+        }
+
+        @Override
+        protected InetAddress[] resolveHostname(String host) throws UnknownHostException {
+            long start = System.nanoTime();
+            try {
+                return super.resolveHostname(host);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                RequestTiming.current().ifPresent(timing -> timing.addDns(elapsed));
+            }
+        }
+
+        @Override
+        public void openConnection(OperatedClientConnection conn, HttpHost target, InetAddress local, HttpContext context, HttpParams params) throws IOException {
+            Optional<RequestTiming> timing = RequestTiming.current();
+            long dnsBefore = timing.map(RequestTiming::dnsNanos).orElse(0L);
+            long start = System.nanoTime();
+            try {
+                super.openConnection(conn, target, local, context, params);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                // the host name is resolved while opening, which is recorded as dns and not as connect
+                timing.ifPresent(t -> t.addConnect(elapsed - (t.dnsNanos() - dnsBefore)));
+            }
+        }
+    }
+
+    private static class TimingRequestExecutor extends HttpRequestExecutor {
+        @Override
+        protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException {
+            Optional<RequestTiming> timing = RequestTiming.current();
+            timing.ifPresent(t -> t.sending(true));
+            HttpResponse response = super.doSendRequest(request, conn, context);
+            timing.ifPresent(RequestTiming::sent);
+            return response;
+        }
+
+        @Override
+        protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context) throws HttpException, IOException {
+            HttpResponse response = super.doReceiveResponse(request, conn, context);
+            RequestTiming.current().ifPresent(RequestTiming::firstByte);
+            return response;
+        }
+    }
+
+    private static class CountingEntity extends HttpEntityWrapper {
+        CountingEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new FilterInputStream(super.getContent()) {
+                @Override
+                public int read() throws IOException {
+                    int read = super.read();
+                    if (read >= 0) {
+                        Compression.countWireBytes(1);
+                    }
+                    return read;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int read = super.read(b, off, len);
+                    if (read > 0) {
+                        Compression.countWireBytes(read);
+                    }
+                    return read;
+                }
+            };
+        }
+    }
+
+    /**
+     * Statistics of a {@link ConnectionPool}.
+     */
+    public static final class PoolStatistics {
+        private final int leased;
+        private final int idle;
+        private final int max;
+        private final long opened;
+        private final long requests;
+
+        PoolStatistics(int leased, int idle, int max, long opened, long requests) {
+            this.leased = leased;
+            this.idle = idle;
+            this.max = max;
+            this.opened = opened;
+            this.requests = requests;
+        }
+
+        public int leased() {
+            return leased;
+        }
+
+        public int idle() {
+            return idle;
+        }
+
+        public int max() {
+            return max;
+        }
+
+        public long opened() {
+            return opened;
+        }
+
+        public long requests() {
+            return requests;
+        }
+
+        /**
+         * Returns the number of requests that were sent over an already opened connection.
+         *
+         * @return the number of reused connections
+         */
+        public long reused() {
+            return Math.max(requests - opened, 0);
+        }
+
+        @Override
+        public String toString() {
+            return "leased: " + leased + ", idle: " + idle + ", max: " + max + ", opened: " + opened
+                    + ", requests: " + requests + ", reused: " + reused();
+        }
+    }
+}
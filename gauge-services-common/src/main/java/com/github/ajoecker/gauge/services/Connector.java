@@ -1,22 +1,23 @@
 package com.github.ajoecker.gauge.services;
 
 import com.github.ajoecker.gauge.random.data.VariableStorage;
+import com.github.ajoecker.gauge.services.json.JsonDiff;
 import com.github.ajoecker.gauge.services.login.AuthenticationHandler;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
 import com.thoughtworks.gauge.Table;
 import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
 import org.hamcrest.*;
 import org.tinylog.Logger;
 
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.text.NumberFormat;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static java.util.Arrays.stream;
@@ -28,8 +29,6 @@ import static org.hamcrest.Matchers.is;
  * Abstraction of a connection to a service. This is the glue to connect and send to a service, e.g. GraphQL or REST
  */
 public class Connector {
-    private static final Pattern compile = Pattern.compile("(%.+?%)");
-    private static final String MASK = "%";
     private final VariableStorage variableStorage;
     private final String prefix;
     protected final Sender sender;
@@ -76,21 +75,120 @@ public class Connector {
      * @param authenticationHandler the {@link AuthenticationHandler} to ensure authentication
      */
     public final void post(String query, String path, AuthenticationHandler authenticationHandler) {
-        post(query, path, authenticationHandler, Function.identity());
+        post(query, path, authenticationHandler, Map.of());
     }
 
     public void post(String query, String path, Table table, AuthenticationHandler authenticationHandler) {
-        post(query, path, authenticationHandler, v -> replaceVariablesFromTable(v, table));
+        post(query, path, authenticationHandler, tableVariables(table));
     }
 
-    private void post(String query, String path, AuthenticationHandler authenticationHandler, Function<String, String> queryMaker) {
+    private void post(String query, String path, AuthenticationHandler authenticationHandler, Map<String, String> variables) {
         String postEndpoint = sender.getCompleteEndpoint(replaceVariables(path));
         Logger.info("posting to " + postEndpoint);
-        Object object = bodyFor(replaceVariables(queryMaker.apply(query)));
-        sender.setResponse(sender.sendPost(authenticationHandler, postEndpoint, object));
+        Object object = bodyFor(query, variables);
+        sender.setResponse(sendPost(authenticationHandler, postEndpoint, object));
         Logger.info("posting done");
     }
 
+    /**
+     * Sends a post with the given query without blocking.
+     * <p>
+     * All variables are replaced before the request is sent. The response is not set as latest response, but must be
+     * handled by the caller, which allows to send multiple independent requests and join them later.
+     *
+     * @param query                 the query
+     * @param path                  the resource the post is send to
+     * @param authenticationHandler the {@link AuthenticationHandler} to ensure authentication
+     * @return the future response
+     */
+    public final CompletableFuture<Response> postAsync(String query, String path, AuthenticationHandler authenticationHandler) {
+        String postEndpoint = sender.getCompleteEndpoint(replaceVariables(path));
+        Logger.info("posting asynchronously to {}", postEndpoint);
+        return sendPostAsync(authenticationHandler, postEndpoint, bodyFor(query, Map.of()));
+    }
+
+    /**
+     * Sends a post with the given query repeatedly with the given concurrency.
+     * <p>
+     * All variables are replaced once before the first request is sent.
+     *
+     * @param query                 the query
+     * @param path                  the resource the post is send to
+     * @param times                 the number of posts to send
+     * @param concurrency           the number of posts sent at the same time
+     * @param authenticationHandler the {@link AuthenticationHandler} to ensure authentication
+     * @return the result of all posts
+     * @see Sender#sendRepeatedly(int, int, Supplier)
+     */
+    public final LoadResult postRepeatedly(String query, String path, int times, int concurrency, AuthenticationHandler authenticationHandler) {
+        String postEndpoint = sender.getCompleteEndpoint(replaceVariables(path));
+        Logger.info("posting {} times with concurrency {} to {}", times, concurrency, postEndpoint);
+        Object object = bodyFor(query, Map.of());
+        return sender.sendRepeatedly(times, concurrency, () -> sendPost(authenticationHandler, postEndpoint, object));
+    }
+
+    /**
+     * Sends a post with the given query and returns the values of the given paths of its response. The response is not
+     * set as latest response, so that a post like a login does not interfere with the responses under test.
+     *
+     * @param query the query, of which all variables are replaced already, see {@link #render(String)}
+     * @param paths the paths to look for
+     * @return the values by their path, a value is <code>null</code> if its path does not exist
+     */
+    public final Map<String, Object> postAside(String query, Collection<String> paths) {
+        String postEndpoint = sender.getCompleteEndpoint("");
+        Logger.info("posting aside to {}", postEndpoint);
+        ResponseDocument document = new ResponseDocument(sender.sendAside(() -> sendPost(null, postEndpoint, bodyFor(query))));
+        Map<String, Object> values = new LinkedHashMap<>();
+        paths.forEach(path -> values.put(path, document.read(prefixfy(path))));
+        return values;
+    }
+
+    /**
+     * Replaces all variables of the given query, like the credentials of a login query.
+     *
+     * @param query the query with variables
+     * @return the query without variables
+     */
+    public final String render(String query) {
+        return replaceVariables(query);
+    }
+
+    /**
+     * Returns the endpoint requests are sent to.
+     *
+     * @return the endpoint
+     */
+    public final String endpoint() {
+        return sender.getCompleteEndpoint("");
+    }
+
+    /**
+     * Sends a post with the given body. Allows to send the body differently, like a graphql query by its hash.
+     * <p>
+     * Default method simply sends the body via {@link Sender#sendPost(AuthenticationHandler, String, Object)}
+     *
+     * @param authenticationHandler the {@link AuthenticationHandler} to ensure authentication
+     * @param endpoint              the endpoint the post is send to
+     * @param body                  the body, see {@link #bodyFor(String)}
+     * @return the response
+     */
+    protected Response sendPost(AuthenticationHandler authenticationHandler, String endpoint, Object body) {
+        return sender.sendPost(authenticationHandler, endpoint, body);
+    }
+
+    /**
+     * Sends a post with the given body without blocking, see {@link #sendPost(AuthenticationHandler, String, Object)}.
+     *
+     * @param authenticationHandler the {@link AuthenticationHandler} to ensure authentication
+     * @param endpoint              the endpoint the post is send to
+     * @param body                  the body, see {@link #bodyFor(String)}
+     * @return the future response
+     */
+    protected CompletableFuture<Response> sendPostAsync(AuthenticationHandler authenticationHandler, String endpoint, Object body) {
+        return sender.sendPostAsync(authenticationHandler, endpoint, body);
+    }
+
     /**
      * Allows to modify the query if the body of the request requires to format the query differently.
      * <p>
@@ -103,6 +201,19 @@ public class Connector {
         return query;
     }
 
+    /**
+     * Creates the body of a post with the given query, of which the variables are not replaced yet.
+     * <p>
+     * By default all variables are replaced in the query, before it is formatted by {@link #bodyFor(String)}.
+     *
+     * @param query     the query with variables
+     * @param variables the values of variables given with the step, like by a table, which take precedence
+     * @return the formatted object for the request
+     */
+    protected Object bodyFor(String query, Map<String, String> variables) {
+        return bodyFor(replaceVariables(variables.isEmpty() ? query : replaceVariablesFromTable(query, variables)));
+    }
+
     /**
      * Returns the value of the given path from the latest response if existing.
      *
@@ -125,34 +236,64 @@ public class Connector {
         sender.assertResponse(prefixfy(path), matcher);
     }
 
+    /**
+     * Returns the values of the given paths from the latest response, which are all read at once, in streaming mode
+     * with a single pass over the response.
+     *
+     * @param paths the paths to look for
+     * @return the values by their path, a value is <code>null</code> if its path does not exist
+     */
+    public final Map<String, Object> fromLatestResponse(Collection<String> paths) {
+        Map<String, String> prefixed = new LinkedHashMap<>();
+        paths.forEach(path -> prefixed.put(prefixfy(path), path));
+        Map<String, Object> values = new LinkedHashMap<>();
+        sender.paths(prefixed.keySet()).forEach((path, value) -> values.put(prefixed.get(path), value));
+        return values;
+    }
+
     public Consumer<Object[]> startWith(String dataPath) {
-        return actual -> {
-            if (sender.path(prefixfy(dataPath)) instanceof List) {
-                assertResponse(dataPath, new ListStartWith(actual));
-            } else {
-                assertResponse(dataPath, Matchers.containsString((String) actual[0]));
-            }
-        };
+        return actual -> assertResponse(dataPath, startWithMatcher(sender.path(prefixfy(dataPath)), actual));
     }
 
     public Consumer<Object[]> thenContains(String dataPath) {
-        return items -> {
-            if (sender.path(prefixfy(dataPath)) instanceof List) {
-                assertResponse(dataPath, Matchers.hasItems(items));
-            } else {
-                assertResponse(dataPath, Matchers.containsString((String) items[0]));
-            }
-        };
+        return items -> assertResponse(dataPath, containsMatcher(sender.path(prefixfy(dataPath)), items));
     }
 
     public Consumer<Object[]> thenIs(String dataPath) {
-        return items -> {
-            if (sender.path(prefixfy(dataPath)) instanceof List) {
-                assertResponse(dataPath, containsInAnyOrder(items));
-            } else {
-                assertResponse(dataPath, is(items[0]));
-            }
-        };
+        return items -> assertResponse(dataPath, isMatcher(sender.path(prefixfy(dataPath)), items));
+    }
+
+    /**
+     * Returns the matcher of {@link #startWith(String)} for the given value of a path.
+     *
+     * @param value    the value of the path
+     * @param expected the expected values
+     * @return the matcher
+     */
+    public static Matcher<?> startWithMatcher(Object value, Object[] expected) {
+        return value instanceof List ? new ListStartWith(expected) : Matchers.containsString((String) expected[0]);
+    }
+
+    /**
+     * Returns the matcher of {@link #thenContains(String)} for the given value of a path.
+     *
+     * @param value    the value of the path
+     * @param expected the expected values
+     * @return the matcher
+     */
+    public static Matcher<?> containsMatcher(Object value, Object[] expected) {
+        return value instanceof List ? Matchers.hasItems(expected) : Matchers.containsString((String) expected[0]);
+    }
+
+    /**
+     * Returns the matcher of {@link #thenIs(String)} for the given value of a path.
+     *
+     * @param value    the value of the path
+     * @param expected the expected values
+     * @return the matcher
+     */
+    public static Matcher<?> isMatcher(Object value, Object[] expected) {
+        return value instanceof List ? containsInAnyOrder(expected) : is(expected[0]);
     }
 
     /**
@@ -169,24 +310,47 @@ public class Connector {
     public final void extract(String variable, String parent, String attributeValue, String saver) {
         Logger.info("extracting variable {} where {} is", variable, attributeValue);
         List<String> keyValueList = splitIntoKeyValueList(attributeValue);
-        Optional<Object> optionalParent = fromLatestResponse(parent);
 
         if (keyValueList.isEmpty()) {
-            optionalParent.ifPresent(o -> storeVariableFromMap(variable, (Map<Object, Object>) o, saver));
+            // in streaming mode only the variable is read, if it is found as property of the parent. Otherwise the
+            // parent is read, so that a missing or not an object parent behaves the same in both modes
+            String path = prefixfy(parent.isEmpty() ? variable : parent + "." + variable);
+            Map<String, Object> streamed = sender.isStreaming() ? sender.streamedPaths(List.of(path)) : Map.of();
+            if (streamed.containsKey(path)) {
+                storeValue(saver, noMap(variable, streamed.get(path)));
+            } else {
+                fromLatestResponse(parent).ifPresent(o -> storeVariableFromMap(variable, (Map<Object, Object>) o, saver));
+            }
         } else {
-            optionalParent.filter(List.class::isInstance).ifPresent(enclosing -> storeMatchInMap(variable, keyValueList, enclosing, saver));
+            expectedAttributes(keyValueList).flatMap(attributes -> sender.findFirstWhere(prefixfy(parent), attributes))
+                    .ifPresent(match -> storeMatchInMap(variable, (Map<Object, Object>) match, saver));
         }
     }
 
-    private void storeMatchInMap(String variable, List<String> keyValueList, Object enclosing, String saver) {
-        Logger.info("extracting from found value {}", enclosing);
-        List<Map<Object, Object>> theList = (List<Map<Object, Object>>) enclosing;
-        Optional<Map<Object, Object>> match = theList.stream().filter(map -> matches(map, keyValueList)).findFirst();
-        match.ifPresent(keyValue -> {
-            Object value = keyValue.get(variable);
-            Logger.info("extraction successful for {}", value);
-            variableStorage.put(saver, value);
-        });
+    /**
+     * Extracts the values of all paths in the given table from the latest response. The table requires the columns
+     * <code>path</code> and <code>variable</code>, each value is stored under the name given in <code>variable</code>.
+     * <p>
+     * In streaming mode all values are read with a single pass over the response.
+     *
+     * @param table the paths and variables
+     */
+    public final void extractAll(Table table) {
+        Map<String, String> variables = new LinkedHashMap<>();
+        table.getTableRows().forEach(row -> variables.put(prefixfy(row.getCell("path")), row.getCell("variable")));
+        sender.paths(variables.keySet()).forEach((path, value) -> storeValue(variables.get(path), value));
+    }
+
+    private void storeValue(String saver, Object value) {
+        Logger.info("extraction successful for {} as {}", value, saver);
+        variableStorage.put(saver, value);
+    }
+
+    private void storeMatchInMap(String variable, Map<Object, Object> match, String saver) {
+        Logger.info("extracting from found value {}", match);
+        Object value = match.get(variable);
+        Logger.info("extraction successful for {}", value);
+        variableStorage.put(saver, value);
     }
 
     private void storeVariableFromMap(String variable, Map<Object, Object> map, String saver) {
@@ -208,22 +372,33 @@ public class Connector {
         throw new IllegalArgumentException("no value found for " + variable + " in " + map);
     }
 
+    private static Object noMap(String variable, Object value) {
+        if (value instanceof Map) {
+            throw new IllegalArgumentException("no value found for " + variable + " in " + value);
+        }
+        return value;
+    }
+
     private List<String> splitIntoKeyValueList(String s) {
         return s.length() == 0 ? List.of() : Arrays.stream(s.split("\\s*,\\s*"))
                 .flatMap(s1 -> Arrays.stream(s1.split("=")))
                 .collect(Collectors.toList());
     }
 
-    private boolean matches(Map<Object, Object> target, List<String> keyValues) {
+    // the values by attribute with all variables replaced, empty if an attribute is given with different values
+    private Optional<Map<String, String>> expectedAttributes(List<String> keyValues) {
+        Map<String, String> attributes = new LinkedHashMap<>();
         Iterator<String> iterator = keyValues.iterator();
         while (iterator.hasNext()) {
             String key = iterator.next();
-            String query = replaceVariables(iterator.next());
-            if (!query.equals(target.get(key))) {
-                return false;
+            String value = replaceVariables(iterator.next());
+            String previous = attributes.putIfAbsent(key, value);
+            if (previous != null && !previous.equals(value)) {
+                Logger.info("{} cannot be both {} and {}", key, previous, value);
+                return Optional.empty();
             }
         }
-        return true;
+        return Optional.of(attributes);
     }
 
 
@@ -245,15 +420,30 @@ public class Connector {
     }
 
     private final String replaceVariables(String v, Function<String, Optional<Object>> retriever) {
-        java.util.regex.Matcher matcher = compile.matcher(v);
-        String result = v;
-        while (matcher.find()) {
-            Optional<Object> value = retriever.apply(matcher.group(1).replace(MASK, "").trim());
-            String variableValue = value.map(Object::toString).orElseThrow();
-            String substring = v.substring(matcher.start(1), matcher.end(1));
-            result = result.replace(substring, variableValue.replace("\"", "\\\""));
-        }
-        return result;
+        return replaceVariables(v, retriever, true);
+    }
+
+    /**
+     * Replaces all variables by the values of the given retriever, which are masked or not.
+     *
+     * @param v         the string with variables
+     * @param retriever looks up the value of a variable by its name
+     * @param masked    whether each <code>"</code> of a value is masked as <code>\"</code>
+     * @return a replaced string with no variables
+     */
+    protected final String replaceVariables(String v, Function<String, Optional<Object>> retriever, boolean masked) {
+        return Template.of(v).render(retriever, masked);
+    }
+
+    /**
+     * Returns the name of the variable, if the given string is a single variable without any text around, like
+     * <code>%size%</code>.
+     *
+     * @param v the string
+     * @return the name of the variable or an empty {@link Optional}
+     */
+    protected final Optional<String> variableOf(String v) {
+        return Template.of(v).variable();
     }
 
     public static void main(String[] args) {
@@ -308,21 +498,25 @@ public class Connector {
         System.out.println(o);
     }
 
-    private String replaceVariablesFromTable(String query, Table table) {
-        return replaceVariables(query, v -> foor(table, v).or(() -> getVariableValue(v)));
+    private String replaceVariablesFromTable(String query, Map<String, String> tableVariables) {
+        return replaceVariables(query, v -> Optional.<Object>ofNullable(tableVariables.get(v)).or(() -> getVariableValue(v)));
     }
 
-    private Optional<Object> foor(Table table, String variable) {
-        return table.getTableRows().stream().
-                filter(tableRow -> {
-                    String variable1 = tableRow.getCell("variable");
-                    Logger.info("{} == {} : {}", variable, variable1, variable.equals(variable1));
-                    return variable1.equals(variable);
-                }).
-                findFirst().map(tableRow -> tableRow.getCell("value"));
+    // the value of each variable of the table, the first row wins if a variable is given multiple times
+    private static Map<String, String> tableVariables(Table table) {
+        Map<String, String> variables = new HashMap<>();
+        table.getTableRows().forEach(row -> variables.putIfAbsent(row.getCell("variable"), row.getCell("value")));
+        Logger.info("replacing variables with a table of {} variables", variables.size());
+        return variables;
     }
 
-    private Optional<Object> getVariableValue(String variable) {
+    /**
+     * Returns the value of the given variable, either from the {@link VariableStorage} or else from the latest response.
+     *
+     * @param variable the name of the variable
+     * @return the value or an empty {@link Optional}, if the variable is unknown
+     */
+    protected final Optional<Object> getVariableValue(String variable) {
         return getFromVariableStorage(variable).or(() -> fromLatestResponse(variable));
     }
 
@@ -330,11 +524,32 @@ public class Connector {
         return variableStorage.get(toLookFor);
     }
 
+    /**
+     * Releases the state of the current thread at the end of a scenario, if configured via
+     * <code>gauge.service.isolation</code>.
+     *
+     * @see Registry#release()
+     */
+    public void release() {
+        // no state of its own by default
+    }
+
+    /**
+     * Asserts that the latest response is structurally equal to the given json, see {@link JsonDiff}.
+     * <p>
+     * The comparison stops after <code>gauge.service.json.diff.max</code> differences. The paths in
+     * <code>gauge.service.json.diff.ignore</code> are not compared and the arrays in
+     * <code>gauge.service.json.diff.unordered</code> are compared regardless of the order of their elements.
+     *
+     * @param content the expected json
+     */
     public void assertResponseAsJson(String content) {
-        JsonParser jsonParser = new JsonParser();
-        JsonElement actualJson = jsonParser.parse(sender.responseAsJson());
-        JsonElement expectedJson = jsonParser.parse(content);
-        assertThat(actualJson).isEqualTo(expectedJson);
+        VariableAccessor variableAccessor = sender.getVariableAccessor();
+        JsonDiff diff = new JsonDiff(variableAccessor.jsonDiffMax(), variableAccessor.jsonDiffIgnore(), variableAccessor.jsonDiffUnordered());
+        List<String> differences = diff.compare(new StringReader(content), new StringReader(sender.responseAsJson()));
+        assertThat(differences).withFailMessage("response is not equal to the expected json, "
+                + (differences.size() >= diff.maxDifferences() ? "first " : "") + differences.size() + " differences:\n"
+                + String.join("\n", differences)).isEmpty();
     }
 
     public void extractSum(String variable, String variablesToSum) {
@@ -375,7 +590,7 @@ public class Connector {
     }
 
     public Object extractFromJson(String pathInJson, String pathToJson, String variableToStore) {
-        Object value = JsonPath.from(sender.path(prefixfy(pathToJson)).toString()).get(pathInJson);
+        Object value = ResponseDocument.of(sender.path(prefixfy(pathToJson)).toString()).read(pathInJson);
         Logger.info("extracted {} from json {} in path {}", value, pathToJson, pathInJson);
         if (!variableToStore.equals("")) {
             saveValue(value, theValue -> variableStorage.put(variableToStore, theValue));
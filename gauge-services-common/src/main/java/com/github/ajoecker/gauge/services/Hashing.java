@@ -0,0 +1,33 @@
+package com.github.ajoecker.gauge.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes of strings, like the key of a cached login token or the hash of a persisted query.
+ */
+public final class Hashing {
+    private Hashing() {
+        // static
+    }
+
+    /**
+     * Returns the SHA-256 hash of the UTF-8 bytes of the given value.
+     *
+     * @param value the value to hash
+     * @return the hash as lower case hex string
+     */
+    public static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.github.ajoecker.gauge.services;
+
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.filter.time.TimingFilter;
+import io.restassured.http.Header;
+import io.restassured.http.Headers;
+import io.restassured.internal.RestAssuredResponseImpl;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import io.restassured.specification.RequestSpecification;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * A {@link Transport} that sends all requests with the {@link HttpClient} of the JDK.
+ * <p>
+ * With {@link HttpClient.Version#HTTP_2} the client negotiates HTTP/2 (via ALPN for https or via the h2c upgrade for
+ * http) and multiplexes parallel requests over a single connection. Servers that do not support HTTP/2 are
+ * served with HTTP/1.1.
+ * <p>
+ * The request is still built by REST Assured and the response is still a REST Assured {@link Response}, only the
+ * exchange over the network is done by the JDK client.
+ */
+public class HttpClientTransport implements Transport, OrderedFilter {
+    // headers the jdk client sets itself and does not allow to set
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+    private final HttpClient httpClient;
+    private final String acceptEncoding;
+    private final Map<HttpClient.Version, LongAdder> responses = new ConcurrentHashMap<>();
+
+    public HttpClientTransport(HttpClient.Version version) {
+        this(version, List.of());
+    }
+
+    public HttpClientTransport(HttpClient.Version version, List<Compression.Encoding> acceptedEncodings) {
+        this(HttpClient.newBuilder().version(version).followRedirects(HttpClient.Redirect.NORMAL).build(), acceptedEncodings);
+    }
+
+    /**
+     * Creates a transport with the given client.
+     *
+     * @param httpClient        the client to send the requests
+     * @param acceptedEncodings the encodings announced via <code>Accept-Encoding</code>, the JDK client does not
+     *                          decompress responses itself
+     */
+    public HttpClientTransport(HttpClient httpClient, List<Compression.Encoding> acceptedEncodings) {
+        this.httpClient = httpClient;
+        this.acceptEncoding = acceptedEncodings.stream()
+                .map(encoding -> encoding.toString().toLowerCase())
+                .collect(Collectors.joining(","));
+    }
+
+    @Override
+    public RequestSpecification prepare(RequestSpecification request) {
+        return request.filter(this);
+    }
+
+    @Override
+    public int getOrder() {
+        // must be the last filter, as it sends the request instead of REST Assured
+        return LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+        long start = System.nanoTime();
+        HttpRequest.Builder request = toHttpRequest(requestSpec);
+        if (!acceptEncoding.isEmpty() && !requestSpec.getHeaders().hasHeaderWithName("Accept-Encoding")) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        Optional<RequestTiming> timing = RequestTiming.current();
+        timing.ifPresent(t -> t.sending(false));
+        HttpResponse<byte[]> response = send(request.build(), responseInfo -> {
+            // called as soon as the headers are received
+            timing.ifPresent(RequestTiming::firstByte);
+            return HttpResponse.BodyHandlers.ofByteArray().apply(responseInfo);
+        });
+        responses.computeIfAbsent(response.version(), v -> new LongAdder()).increment();
+        Compression.countWireBytes(response.body().length);
+        byte[] body = Compression.decode(response.body(), response.headers().firstValue("Content-Encoding").orElse(null));
+        // a decoded body is neither encoded anymore nor of the length sent over the network
+        HttpHeaders headers = body == response.body() ? response.headers() : HttpHeaders.of(response.headers().map(),
+                (name, value) -> !"Content-Encoding".equalsIgnoreCase(name) && !"Content-Length".equalsIgnoreCase(name));
+        return toResponse(response.version(), response.statusCode(), headers, body,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Sends the given request with the client of this transport and returns the response as soon as its headers are
+     * received, so that the body can be read as it arrives, like the parts of a <code>multipart/mixed</code> response.
+     *
+     * @param request the request
+     * @return the response with the body still to read
+     */
+    public HttpResponse<InputStream> stream(HttpRequest request) {
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        responses.computeIfAbsent(response.version(), v -> new LongAdder()).increment();
+        return response;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        try {
+            return httpClient.send(request, bodyHandler);
+        } catch (IOException e) {
+            throw new UncheckedIOException("sending " + request.method() + " to " + request.uri() + " failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("sending " + request.method() + " to " + request.uri() + " was interrupted", e);
+        }
+    }
+
+    /**
+     * Transforms the given REST Assured request into a request of the JDK {@link HttpClient}.
+     *
+     * @param requestSpec the request as prepared by REST Assured
+     * @return the builder for the JDK request
+     */
+    public static HttpRequest.Builder toHttpRequest(FilterableRequestSpecification requestSpec) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(requestSpec.getURI()));
+        for (Header header : requestSpec.getHeaders()) {
+            if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase())) {
+                builder.header(header.getName(), header.getValue());
+            }
+        }
+        return builder.method(requestSpec.getMethod(), bodyOf(requestSpec.getBody()));
+    }
+
+    private static HttpRequest.BodyPublisher bodyOf(Object body) {
+        if (body == null) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        if (body instanceof byte[]) {
+            return HttpRequest.BodyPublishers.ofByteArray((byte[]) body);
+        }
+        return HttpRequest.BodyPublishers.ofString(body.toString());
+    }
+
+    /**
+     * Creates a REST Assured {@link Response} from the given response data, so that it can be verified like any
+     * response sent by REST Assured itself.
+     *
+     * @param version    the http version of the response
+     * @param statusCode the status code
+     * @param headers    the response headers
+     * @param body       the response body
+     * @param millis     the time the request took
+     * @return the REST Assured response
+     */
+    public static Response toResponse(HttpClient.Version version, int statusCode, HttpHeaders headers, byte[] body, long millis) {
+        List<Header> responseHeaders = new ArrayList<>();
+        headers.map().forEach((name, values) -> values.forEach(value -> responseHeaders.add(new Header(name, value))));
+        ResponseBuilder responseBuilder = new ResponseBuilder()
+                .setStatusCode(statusCode)
+                .setStatusLine((version == HttpClient.Version.HTTP_2 ? "HTTP/2 " : "HTTP/1.1 ") + statusCode)
+                .setHeaders(new Headers(responseHeaders))
+                .setBody(body);
+        headers.firstValue("Content-Type").ifPresent(responseBuilder::setContentType);
+        Response response = responseBuilder.build();
+        if (response instanceof RestAssuredResponseImpl) {
+            // REST Assured only measures the time, if it sends the request itself
+            ((RestAssuredResponseImpl) response).setFilterContextProperties(Map.of(TimingFilter.RESPONSE_TIME_MILLISECONDS, millis));
+        }
+        return response;
+    }
+
+    @Override
+    public String summary() {
+        return "java.net.http client responses: " + responses.entrySet().stream()
+                .map(entry -> entry.getKey() + ": " + entry.getValue().sum())
+                .collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public void shutdown() {
+        // the jdk client releases its connections itself
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.ajoecker.gauge.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Holds a mutable value, like the latest response or a login token, which is either shared or held per thread,
+ * depending on the {@link Isolation} configured via <code>gauge.service.isolation</code>.
+ * <p>
+ * With Gauge running scenarios in parallel threads, values held per thread keep the parallel scenarios from
+ * overwriting each other. Tasks, which send requests in other threads on behalf of a scenario, see the values of the
+ * scenario, if they are run via {@link #inCurrentContext(Supplier)}.
+ *
+ * @param <T> the type of the value
+ */
+public final class Isolated<T> {
+    public enum Isolation {
+        /**
+         * The value is shared by all threads.
+         */
+        NONE,
+        /**
+         * Each thread holds its own value.
+         */
+        THREAD,
+        /**
+         * Each thread holds its own value, which is reset at the end of each scenario.
+         */
+        SCENARIO
+    }
+
+    // the values of all instances held by the current thread
+    private static final ThreadLocal<Map<Isolated<?>, AtomicReference<Object>>> context = ThreadLocal.withInitial(ConcurrentHashMap::new);
+
+    private final Isolation isolation;
+    private final Supplier<T> initial;
+    private final AtomicReference<Object> shared;
+
+    /**
+     * Creates a new value.
+     *
+     * @param isolation the isolation
+     * @param initial   creates the initial value, once for all threads or per thread respectively
+     */
+    public Isolated(Isolation isolation, Supplier<T> initial) {
+        this.isolation = isolation;
+        this.initial = initial;
+        this.shared = isolation == Isolation.NONE ? new AtomicReference<>(initial.get()) : null;
+    }
+
+    public T get() {
+        return (T) value().get();
+    }
+
+    public void set(T value) {
+        value().set(value);
+    }
+
+    private AtomicReference<Object> value() {
+        if (shared != null) {
+            return shared;
+        }
+        return context.get().computeIfAbsent(this, key -> new AtomicReference<>(initial.get()));
+    }
+
+    /**
+     * Resets the value of the current thread to its initial value at the end of a scenario, if the isolation is
+     * {@link Isolation#SCENARIO}.
+     */
+    public void release() {
+        if (isolation == Isolation.SCENARIO) {
+            context.get().remove(this);
+        }
+    }
+
+    /**
+     * Returns a task, which runs the given task with the values of the current thread, in whatever thread it is run.
+     *
+     * @param task the task
+     * @param <R>  the type of the result
+     * @return the task running in the context of the current thread
+     */
+    public static <R> Supplier<R> inCurrentContext(Supplier<R> task) {
+        Map<Isolated<?>, AtomicReference<Object>> captured = context.get();
+        return () -> {
+            Map<Isolated<?>, AtomicReference<Object>> previous = context.get();
+            context.set(captured);
+            try {
+                return task.get();
+            } finally {
+                context.set(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package com.github.ajoecker.gauge.services;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, which can be recorded concurrently.
+ * <p>
+ * The histogram has a fixed size, independent of the number of recorded latencies. Latencies below 128 ns are
+ * recorded exactly, larger ones in buckets, which keep the 7 most significant bits of a latency. So each reported
+ * value is at most 1/64 (about 1.6%) above the recorded one.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(Long.MAX_VALUE) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(-1);
+
+    /**
+     * Records the given latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("latency must not be negative: " + nanos);
+        }
+        counts.incrementAndGet(indexOf(nanos));
+        count.incrementAndGet();
+        sum.addAndGet(nanos);
+        min.accumulateAndGet(nanos, Math::min);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    // values below SUB_BUCKETS map to themselves, larger values to SUB_BUCKETS / 2 buckets per power of two
+    private static int indexOf(long nanos) {
+        int shift = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS);
+        return shift * HALF + (int) (nanos >>> shift);
+    }
+
+    // the largest value that is recorded in the bucket of the given index
+    private static long highestOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / HALF - 1;
+        long mantissa = index - shift * HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * Returns the smallest recorded latency.
+     *
+     * @return the latency in milliseconds or <code>-1</code>, if nothing is recorded
+     */
+    public double min() {
+        return count() == 0 ? -1 : millis(min.get());
+    }
+
+    /**
+     * Returns the largest recorded latency.
+     *
+     * @return the latency in milliseconds or <code>-1</code>, if nothing is recorded
+     */
+    public double max() {
+        return count() == 0 ? -1 : millis(max.get());
+    }
+
+    /**
+     * Returns the mean of all recorded latencies.
+     *
+     * @return the mean in milliseconds or <code>-1</code>, if nothing is recorded
+     */
+    public double mean() {
+        long n = count();
+        return n == 0 ? -1 : millis(sum.get()) / n;
+    }
+
+    /**
+     * Returns the latency, which the given percentage of all recorded latencies does not exceed.
+     *
+     * @param percentile the percentile between 0 and 100, like <code>95</code> or <code>99.9</code>
+     * @return the latency in milliseconds or <code>-1</code>, if nothing is recorded
+     */
+    public double percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+        }
+        long n = count();
+        if (n == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return millis(Math.max(min.get(), Math.min(highestOf(i), max.get())));
+            }
+        }
+        return max();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        if (count() == 0) {
+            return "no latencies";
+        }
+        return String.format(Locale.ENGLISH, "latency min %.1f ms, mean %.1f ms, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms",
+                min(), mean(), percentile(50), percentile(90), percentile(99), max());
+    }
+}
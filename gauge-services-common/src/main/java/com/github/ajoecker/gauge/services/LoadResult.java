@@ -0,0 +1,89 @@
+package com.github.ajoecker.gauge.services;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * The result of sending a request repeatedly, see {@link Sender#sendRepeatedly(int, int, java.util.function.Supplier)}.
+ * <p>
+ * Only the latencies of requests with a response are part of the {@link LatencyHistogram}. Requests without a response,
+ * like a refused connection, are counted as errors.
+ */
+public final class LoadResult {
+    private final int concurrency;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final Map<Integer, LongAdder> statusCodes = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private volatile long elapsed;
+
+    LoadResult(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    void record(int statusCode, long nanos) {
+        latencies.record(nanos);
+        statusCodes.computeIfAbsent(statusCode, code -> new LongAdder()).increment();
+    }
+
+    void failed(Exception e) {
+        errors.computeIfAbsent(e.getClass().getSimpleName(), name -> new LongAdder()).increment();
+    }
+
+    void finished(long elapsed) {
+        this.elapsed = elapsed;
+    }
+
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+    /**
+     * Returns the number of responses per status code.
+     *
+     * @return the status codes in ascending order
+     */
+    public Map<Integer, Long> statusCodes() {
+        return counts(statusCodes);
+    }
+
+    /**
+     * Returns the number of requests without a response per type of exception.
+     *
+     * @return the simple class names of the exceptions in ascending order
+     */
+    public Map<String, Long> errors() {
+        return counts(errors);
+    }
+
+    private static <T> Map<T, Long> counts(Map<T, LongAdder> adders) {
+        return adders.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum(), Long::sum, TreeMap::new));
+    }
+
+    public long requests() {
+        return latencies.count() + errors().values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Returns the number of requests per second over the whole run.
+     *
+     * @return the throughput
+     */
+    public double throughput() {
+        return elapsed == 0 ? 0 : requests() / (elapsed / 1_000_000_000.0);
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format(Locale.ENGLISH, "%d requests with concurrency %d in %.1f s (%.1f requests/s), status codes %s",
+                requests(), concurrency, elapsed / 1_000_000_000.0, throughput(), statusCodes());
+        if (!errors.isEmpty()) {
+            summary += ", errors " + errors();
+        }
+        return summary + ", " + latencies;
+    }
+}
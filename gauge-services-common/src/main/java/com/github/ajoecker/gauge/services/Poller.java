@@ -0,0 +1,109 @@
+package com.github.ajoecker.gauge.services;
+
+import org.tinylog.Logger;
+
+import java.util.Locale;
+
+/**
+ * Repeats a request until a condition holds or a timeout is reached.
+ * <p>
+ * The delay between two attempts starts with <code>gauge.service.poll.interval</code> and is multiplied by
+ * <code>gauge.service.poll.backoff</code> after each attempt, up to <code>gauge.service.poll.interval.max</code>, see
+ * {@link VariableAccessor#pollInterval()}, {@link VariableAccessor#pollBackoff()} and
+ * {@link VariableAccessor#pollMaxInterval()}.
+ */
+public class Poller {
+    private final long interval;
+    private final double backoff;
+    private final long maxInterval;
+
+    public Poller(long interval, double backoff, long maxInterval) {
+        if (interval < 1 || backoff < 1 || maxInterval < interval) {
+            throw new IllegalArgumentException("invalid polling of interval " + interval + " ms, backoff " + backoff
+                    + " and max interval " + maxInterval + " ms");
+        }
+        this.interval = interval;
+        this.backoff = backoff;
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * Creates the poller that is configured in the given {@link VariableAccessor}.
+     *
+     * @param variableAccessor the configuration
+     * @return the configured poller
+     */
+    public static Poller of(VariableAccessor variableAccessor) {
+        return new Poller(variableAccessor.pollInterval(), variableAccessor.pollBackoff(), variableAccessor.pollMaxInterval());
+    }
+
+    /**
+     * Checks the given condition and repeats the given request until the condition holds.
+     *
+     * @param condition the condition, which throws an {@link AssertionError} as long as it does not hold
+     * @param request   the request, which is repeated before each further check
+     * @param timeout   the maximal time to poll in milliseconds
+     * @return the number of attempts and the time it took
+     * @throws AssertionError the last error of the condition, if it does not hold within the timeout
+     */
+    public Result until(Runnable condition, Runnable request, long timeout) {
+        long start = System.nanoTime();
+        long deadline = start + timeout * 1_000_000;
+        long delay = interval;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                condition.run();
+                Result result = new Result(attempt, System.nanoTime() - start);
+                Logger.info("condition holds after {}", result);
+                return result;
+            } catch (AssertionError e) {
+                long remaining = (deadline - System.nanoTime()) / 1_000_000;
+                if (remaining <= 0) {
+                    AssertionError timedOut = new AssertionError("condition does not hold after "
+                            + new Result(attempt, System.nanoTime() - start) + ": " + e.getMessage());
+                    timedOut.initCause(e);
+                    throw timedOut;
+                }
+                Logger.info("condition does not hold in attempt {}, polling again in {} ms", attempt, Math.min(delay, remaining));
+                sleep(Math.min(delay, remaining));
+                delay = Math.min((long) (delay * backoff), maxInterval);
+            }
+            request.run();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("polling is interrupted", e);
+        }
+    }
+
+    /**
+     * The number of attempts and the time polling took.
+     */
+    public static final class Result {
+        private final int attempts;
+        private final long nanos;
+
+        private Result(int attempts, long nanos) {
+            this.attempts = attempts;
+            this.nanos = nanos;
+        }
+
+        public int attempts() {
+            return attempts;
+        }
+
+        public double seconds() {
+            return nanos / 1_000_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ENGLISH, "%d attempt%s in %.1f s", attempts, attempts == 1 ? "" : "s", seconds());
+        }
+    }
+}
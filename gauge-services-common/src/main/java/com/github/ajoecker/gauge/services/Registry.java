@@ -5,9 +5,9 @@ import com.github.ajoecker.gauge.services.login.BasicAuthentication;
 import com.github.ajoecker.gauge.services.login.TokenBasedAuthentication;
 import org.tinylog.Logger;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public final class Registry {
@@ -17,10 +17,12 @@ public final class Registry {
         TOKEN, BASIC
     }
 
-    private AuthenticationHandler authenticationHandler;
-    private Map<String, Connector> connectors = new HashMap<>();
-    private Sender sender = new Sender(new VariableAccessor());
-    private String activeType = "";
+    private volatile AuthenticationHandler authenticationHandler;
+    private final Map<String, Connector> connectors = new ConcurrentHashMap<>();
+    private volatile Sender sender = new Sender(new VariableAccessor());
+    // the type registered last is active, until a step activates another one
+    private volatile String defaultType = "";
+    private final Isolated<String> activeType = new Isolated<>(new VariableAccessor().isolation(), () -> defaultType);
 
     private Registry() {
         // static
@@ -33,25 +35,36 @@ public final class Registry {
     public void init(String type, Function<Sender, Connector> function) {
         String loginHandler = Optional.ofNullable(System.getenv("gauge.service.loginhandler")).orElse(LoginType.BASIC.toString());
         Logger.info("loginhandler = " + loginHandler);
-        init(type, sender, function.apply(sender), getLoginHandler(loginHandler));
+        init(type, sender, function.apply(sender), getLoginHandler(loginHandler, sender.getVariableAccessor()));
     }
 
     // test-friendly
     public void init(String type, Sender sender, Connector connector, AuthenticationHandler authenticationHandler) {
         Logger.info("register connector for " + type);
         this.authenticationHandler = authenticationHandler;
-        this.activeType = type;
+        this.defaultType = type;
+        this.activeType.set(type);
         this.sender = sender;
         connectors.put(type, connector);
     }
 
     public void setActiveType(String type) {
         Logger.info("setting active type to {}", type);
-        this.activeType = type;
+        this.activeType.set(type);
     }
 
     public Connector connector() {
-        return connectors.get(activeType);
+        return connectors.get(activeType.get());
+    }
+
+    /**
+     * Returns the connector registered for the given type, regardless of the active type.
+     *
+     * @param type the type, like <code>graphql</code>
+     * @return the connector or an empty {@link Optional}, if no connector is registered for the type
+     */
+    public Optional<Connector> connector(String type) {
+        return Optional.ofNullable(connectors.get(type));
     }
 
     public Sender sender() {
@@ -62,13 +75,29 @@ public final class Registry {
         return authenticationHandler;
     }
 
-    private AuthenticationHandler getLoginHandler(String type) {
+    /**
+     * Releases the active type, the latest response, the login and the state of all connectors of the current thread
+     * at the end of a scenario, if configured via <code>gauge.service.isolation</code>.
+     *
+     * @see Isolated#release()
+     * @see Connector#release()
+     */
+    public void release() {
+        activeType.release();
+        sender.release();
+        connectors.values().forEach(Connector::release);
+        if (authenticationHandler != null) {
+            authenticationHandler.release();
+        }
+    }
+
+    private AuthenticationHandler getLoginHandler(String type, VariableAccessor variableAccessor) {
         switch (LoginType.valueOf(type.toUpperCase())) {
             case BASIC:
-                return new BasicAuthentication();
+                return new BasicAuthentication(variableAccessor.isolation());
 
             case TOKEN:
-                return new TokenBasedAuthentication();
+                return new TokenBasedAuthentication(variableAccessor.isolation(), variableAccessor);
 
             default:
                 throw new IllegalArgumentException("unknown type for login: " + type);
@@ -0,0 +1,206 @@
+package com.github.ajoecker.gauge.services;
+
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.internal.RestAssuredResponseOptionsImpl;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * The time a request spent in each phase of its exchange.
+ * <ul>
+ * <li>{@link Phase#DNS}: resolving the host name</li>
+ * <li>{@link Phase#CONNECT}: opening the connection, including the TLS handshake</li>
+ * <li>{@link Phase#SEND}: writing the request</li>
+ * <li>{@link Phase#WAIT}: waiting for the server after the request is sent, until the response headers are read</li>
+ * <li>{@link Phase#TTFB}: the time to first byte, from the start of the request until the response headers are read</li>
+ * <li>{@link Phase#DOWNLOAD}: reading the response body</li>
+ * <li>{@link Phase#TOTAL}: the complete exchange</li>
+ * </ul>
+ * DNS and connect are zero, if a pooled connection is reused. The java.net.http transport does not reveal DNS,
+ * connect and send, they are not available and part of wait.
+ * <p>
+ * The timing is recorded by the {@link Recorder} and attached to the response, see {@link #of(Response)}.
+ */
+public final class RequestTiming {
+    public enum Phase {
+        DNS, CONNECT, SEND, WAIT, TTFB, DOWNLOAD, TOTAL
+    }
+
+    private static final String PROPERTY = "gauge.service.timing";
+    // the timing of the request that is currently sent by this thread
+    private static final ThreadLocal<RequestTiming> current = new ThreadLocal<>();
+    private static final long UNKNOWN = -1;
+
+    private final long start = System.nanoTime();
+    private volatile long dns = UNKNOWN;
+    private volatile long connect = UNKNOWN;
+    private volatile long sending = UNKNOWN;
+    private volatile long sent = UNKNOWN;
+    private volatile long firstByte = UNKNOWN;
+    private volatile long end = UNKNOWN;
+
+    private RequestTiming() {
+    }
+
+    /**
+     * Returns the timing of the request that is currently sent by this thread.
+     *
+     * @return the timing or an empty {@link Optional}, if no request is recorded
+     */
+    static Optional<RequestTiming> current() {
+        return Optional.ofNullable(current.get());
+    }
+
+    /**
+     * Returns the timing of the given response.
+     *
+     * @param response the response
+     * @return the timing or an empty {@link Optional}, if the request was not recorded
+     */
+    public static Optional<RequestTiming> of(Response response) {
+        if (response instanceof RestAssuredResponseOptionsImpl) {
+            Map<?, ?> properties = ((RestAssuredResponseOptionsImpl<?>) response).getFilterContextProperties();
+            if (properties != null && properties.get(PROPERTY) instanceof RequestTiming) {
+                return Optional.of((RequestTiming) properties.get(PROPERTY));
+            }
+        }
+        return Optional.empty();
+    }
+
+    long dnsNanos() {
+        return Math.max(dns, 0);
+    }
+
+    void addDns(long nanos) {
+        dns = Math.max(dns, 0) + nanos;
+    }
+
+    void addConnect(long nanos) {
+        connect = Math.max(connect, 0) + nanos;
+    }
+
+    /**
+     * Marks that the connection is established and the request is written now. In case of redirects, the last
+     * exchange is recorded.
+     *
+     * @param connectionTimed whether the transport measures DNS and connect, which are zero if not measured so far
+     */
+    void sending(boolean connectionTimed) {
+        if (connectionTimed) {
+            dns = Math.max(dns, 0);
+            connect = Math.max(connect, 0);
+        }
+        sending = System.nanoTime();
+        sent = UNKNOWN;
+    }
+
+    void sent() {
+        sent = System.nanoTime();
+    }
+
+    void firstByte() {
+        firstByte = System.nanoTime();
+    }
+
+    private void end() {
+        end = System.nanoTime();
+    }
+
+    /**
+     * Returns the time of the given phase.
+     *
+     * @param phase the phase
+     * @return the time in milliseconds or <code>-1</code>, if not available
+     */
+    public double millis(Phase phase) {
+        long nanos = nanos(phase);
+        return nanos < 0 ? UNKNOWN : nanos / 1_000_000.0;
+    }
+
+    private long nanos(Phase phase) {
+        switch (phase) {
+            case DNS:
+                return dns;
+            case CONNECT:
+                return connect;
+            case SEND:
+                return between(sending, sent);
+            case WAIT:
+                return between(sent == UNKNOWN ? sending : sent, firstByte);
+            case TTFB:
+                return between(start, firstByte);
+            case DOWNLOAD:
+                return between(firstByte, end);
+            case TOTAL:
+                return between(start, end);
+            default:
+                throw new IllegalArgumentException("unknown phase: " + phase);
+        }
+    }
+
+    private static long between(long from, long to) {
+        return from == UNKNOWN || to == UNKNOWN ? UNKNOWN : to - from;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.stream(Phase.values())
+                .map(phase -> phase.toString().toLowerCase() + " " + format(millis(phase)))
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String format(double millis) {
+        return millis < 0 ? "n/a" : String.format(Locale.ENGLISH, "%.1f ms", millis);
+    }
+
+    /**
+     * Records the {@link RequestTiming} of each request and attaches it to the response.
+     */
+    public static class Recorder implements OrderedFilter {
+        @Override
+        public int getOrder() {
+            // wraps the compression and a transport, which send the request
+            return LOWEST_PRECEDENCE - 2;
+        }
+
+        @Override
+        public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+            RequestTiming timing = new RequestTiming();
+            current.set(timing);
+            // REST Assured copies the context into its responses, other responses get the timing attached below
+            ctx.setValue(PROPERTY, timing);
+            try {
+                Response response = ctx.next(requestSpec, responseSpec);
+                response.asByteArray();
+                timing.end();
+                attach(response, timing);
+                return response;
+            } finally {
+                current.remove();
+            }
+        }
+
+        private static void attach(Response response, RequestTiming timing) {
+            if (response instanceof RestAssuredResponseOptionsImpl) {
+                RestAssuredResponseOptionsImpl<?> options = (RestAssuredResponseOptionsImpl<?>) response;
+                Map<Object, Object> properties = new HashMap<>();
+                // the properties are a raw map in REST Assured
+                Map<?, ?> existing = options.getFilterContextProperties();
+                if (existing != null) {
+                    existing.forEach(properties::put);
+                }
+                properties.put(PROPERTY, timing);
+                options.setFilterContextProperties(properties);
+            }
+        }
+    }
+}
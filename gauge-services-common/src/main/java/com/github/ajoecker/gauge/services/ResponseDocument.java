@@ -0,0 +1,225 @@
+package com.github.ajoecker.gauge.services;
+
+import com.github.ajoecker.gauge.services.json.CompiledPath;
+import com.github.ajoecker.gauge.services.json.JsonStream;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+import org.tinylog.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * The parsed body of a response.
+ * <p>
+ * The body is parsed once with the first lookup and all succeeding lookups are evaluated against the parsed
+ * document. Paths are evaluated by a {@link CompiledPath} where possible and by GPath otherwise. Responses that are
+ * not json are evaluated directly by REST Assured.
+ * <p>
+ * In streaming mode the body is not parsed as a whole. Each lookup reads the body with a {@link JsonStream} and only
+ * builds the requested values. Lookups that cannot be streamed parse the body as before.
+ */
+public final class ResponseDocument {
+    private final Response response;
+    private final String json;
+    private final boolean streaming;
+    private JsonPath jsonPath;
+    // the elements of a list by the values of some of their attributes, per path of the list and attributes
+    private final Map<List<Object>, Map<List<Object>, Object>> indexes = new ConcurrentHashMap<>();
+
+    public ResponseDocument(Response response) {
+        this(response, false);
+    }
+
+    public ResponseDocument(Response response, boolean streaming) {
+        this(response, null, streaming);
+    }
+
+    private ResponseDocument(Response response, String json, boolean streaming) {
+        this.response = response;
+        this.json = json;
+        this.streaming = streaming;
+    }
+
+    /**
+     * Creates a document of the given json.
+     *
+     * @param json the json
+     * @return the document
+     */
+    public static ResponseDocument of(String json) {
+        return of(null, json);
+    }
+
+    /**
+     * Creates a document of the given json, which is read instead of the body of the given response.
+     *
+     * @param response the response
+     * @param json     the json
+     * @return the document
+     */
+    public static ResponseDocument of(Response response, String json) {
+        return new ResponseDocument(response, json, false);
+    }
+
+    /**
+     * Returns the value of the given path.
+     *
+     * @param path the path to look for
+     * @return the value or <code>null</code> if the path does not exist
+     */
+    public Object read(String path) {
+        return readAll(List.of(path)).get(path);
+    }
+
+    /**
+     * Returns the values of the given paths. In streaming mode all paths are read with a single pass over the body.
+     *
+     * @param paths the paths to look for
+     * @return the values by their path, a value is <code>null</code> if its path does not exist
+     */
+    public Map<String, Object> readAll(Collection<String> paths) {
+        if (!isJson()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            paths.forEach(path -> values.put(path, response.then().extract().path(path)));
+            return values;
+        }
+        Map<String, Object> streamed = isStreaming() ? stream(paths) : Map.of();
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String path : paths) {
+            values.put(path, streamed.containsKey(path) ? streamed.get(path) : evaluate(path));
+        }
+        return values;
+    }
+
+    /**
+     * Returns the values of the given paths that are found by streaming the body, without falling back to parsing
+     * the body as a whole.
+     *
+     * @param paths the paths to look for
+     * @return the values by their path, paths that cannot be streamed or are not found are missing, empty if not in
+     * streaming mode
+     */
+    public Map<String, Object> readStreamed(Collection<String> paths) {
+        return isJson() && isStreaming() ? stream(paths) : Map.of();
+    }
+
+    /**
+     * Returns the first element of the list at the given path that matches the given predicate.
+     *
+     * @param path      the path to the list
+     * @param predicate the predicate an element must match
+     * @return the first matching element or an empty {@link Optional}, if none matches or the path is not a list
+     */
+    public Optional<Object> findFirst(String path, Predicate<Object> predicate) {
+        if (isStreaming()) {
+            try {
+                return JsonStream.findFirst(body(), path, predicate);
+            } catch (UnsupportedOperationException | UncheckedIOException e) {
+                Logger.debug("cannot stream {}: {}", path, e.getMessage());
+            }
+        }
+        Object list = read(path);
+        return list instanceof List ? ((List<?>) list).stream().filter(predicate).findFirst().map(Object.class::cast) : Optional.empty();
+    }
+
+    /**
+     * Returns the first element of the list at the given path, of which each given attribute has the given value.
+     * <p>
+     * The elements of the list are indexed by the values of the attributes with the first lookup, so that each further
+     * lookup of these attributes in this list is a single access. In streaming mode, the list is streamed instead.
+     *
+     * @param path       the path to the list
+     * @param attributes the values by attribute
+     * @return the first matching element or an empty {@link Optional}, if none matches or the path is not a list
+     */
+    public Optional<Object> findFirstWhere(String path, Map<String, String> attributes) {
+        if (isStreaming()) {
+            return findFirst(path, element -> element instanceof Map && hasAttributes((Map<?, ?>) element, attributes));
+        }
+        List<Object> keys = new ArrayList<>(attributes.keySet());
+        Map<List<Object>, Object> index = indexes.computeIfAbsent(List.of(path, keys), key -> index(path, keys));
+        return Optional.ofNullable(index.get(new ArrayList<>(attributes.values())));
+    }
+
+    // test-friendly
+    int indexCount() {
+        return indexes.size();
+    }
+
+    private static boolean hasAttributes(Map<?, ?> element, Map<String, String> attributes) {
+        return attributes.entrySet().stream().allMatch(attribute -> attribute.getValue().equals(element.get(attribute.getKey())));
+    }
+
+    private Map<List<Object>, Object> index(String path, List<Object> keys) {
+        Object list = read(path);
+        if (!(list instanceof List)) {
+            return Map.of();
+        }
+        Logger.info("indexing {} by {}", path, keys);
+        Map<List<Object>, Object> index = new HashMap<>();
+        for (Object element : (List<?>) list) {
+            if (element instanceof Map) {
+                List<Object> values = new ArrayList<>(keys.size());
+                keys.forEach(key -> values.add(((Map<?, ?>) element).get(key)));
+                index.putIfAbsent(values, element);
+            }
+        }
+        return index;
+    }
+
+    private Map<String, Object> stream(Collection<String> paths) {
+        Logger.info("streaming {} from latest response", paths);
+        Map<String, Object> streamed;
+        try {
+            streamed = JsonStream.read(body(), paths);
+        } catch (UncheckedIOException e) {
+            Logger.warn("cannot stream latest response: {}", e.getMessage());
+            return Map.of();
+        }
+        if (streamed.size() < paths.size()) {
+            Logger.info("{} paths cannot be streamed", paths.size() - streamed.size());
+        }
+        return streamed;
+    }
+
+    private ByteArrayInputStream body() {
+        return new ByteArrayInputStream(response.asByteArray());
+    }
+
+    private Object evaluate(String path) {
+        Optional<CompiledPath> compiledPath = CompiledPath.compile(path);
+        if (compiledPath.isPresent()) {
+            try {
+                return compiledPath.get().evaluate(jsonPath().get());
+            } catch (UnsupportedOperationException e) {
+                Logger.debug("evaluating {} with GPath: {}", path, e.getMessage());
+            }
+        }
+        return jsonPath().get(path);
+    }
+
+    // once the body is parsed, it is cheaper to use the parsed document than to stream again
+    private synchronized boolean isStreaming() {
+        return streaming && jsonPath == null;
+    }
+
+    private boolean isJson() {
+        if (response == null) {
+            return true;
+        }
+        String contentType = response.contentType();
+        return contentType == null || contentType.isEmpty() || contentType.contains("json");
+    }
+
+    private synchronized JsonPath jsonPath() {
+        if (jsonPath == null) {
+            Logger.info("parsing latest response");
+            jsonPath = new JsonPath(json != null ? json : response.body().asString());
+        }
+        return jsonPath;
+    }
+}
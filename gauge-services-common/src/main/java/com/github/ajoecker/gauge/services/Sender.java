@@ -2,30 +2,85 @@ package com.github.ajoecker.gauge.services;
 
 import com.github.ajoecker.gauge.services.login.AuthenticationHandler;
 import com.google.common.base.Strings;
+import io.restassured.filter.Filter;
 import io.restassured.http.ContentType;
 import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
 import io.restassured.specification.RequestSpecification;
 import org.hamcrest.Matcher;
+import org.hamcrest.MatcherAssert;
 import org.tinylog.Logger;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class Sender {
+    // the request last sent by this thread, which is taken over by setResponse
+    private static final ThreadLocal<Supplier<Response>> sentRequest = new ThreadLocal<>();
+
     private VariableAccessor variableAccessor;
-    private String endpoint;
-    private Response response;
+    private final Transport transport;
+    private final Compression compression;
+    private final RequestTiming.Recorder timingRecorder = new RequestTiming.Recorder();
+    // the endpoint and the latest response, shared or per thread
+    private final Isolated<State> state;
+    private ExecutorService executor;
 
     public Sender(VariableAccessor variableAccessor) {
+        this(variableAccessor, Transport.of(variableAccessor));
+    }
+
+    public Sender(VariableAccessor variableAccessor, Transport transport) {
         this.variableAccessor = variableAccessor;
-        this.endpoint = variableAccessor.endpoint();
+        this.transport = transport;
+        this.compression = Compression.of(variableAccessor);
+        this.state = new Isolated<>(variableAccessor.isolation(), () -> new State(variableAccessor.endpoint()));
     }
 
     public final void setResponse(Response response) {
-        this.response = response;
+        Supplier<Response> request = sentRequest.get();
+        sentRequest.remove();
+        setResponse(response, request);
+    }
+
+    /**
+     * Sets the given response as latest response, of which the given json is read instead of its body, like the merged
+     * results of multiple requests. The latest request cannot be repeated then.
+     *
+     * @param response the response
+     * @param json     the json to read
+     */
+    public final void setResponse(Response response, String json) {
+        sentRequest.remove();
+        State current = state.get();
+        current.response = response;
+        current.document = ResponseDocument.of(response, json);
+        current.latestRequest = null;
+        current.samples = null;
+    }
+
+    private void setResponse(Response response, Supplier<Response> request) {
+        State current = state.get();
+        current.response = response;
+        current.document = response == null ? null : new ResponseDocument(response, variableAccessor.streaming());
+        current.latestRequest = response == null ? null : request;
+        current.samples = null;
     }
 
     protected RequestSpecification login(AuthenticationHandler authenticationHandler) {
@@ -36,8 +91,27 @@ public class Sender {
         return request;
     }
 
+    /**
+     * Returns the headers, which the given {@link AuthenticationHandler} sets for its login, like
+     * <code>Authorization</code>, for a connection not opened by REST Assured, like a web socket.
+     *
+     * @param authenticationHandler the {@link AuthenticationHandler} or <code>null</code>
+     * @return the headers by their name
+     */
+    public Map<String, String> loginHeaders(AuthenticationHandler authenticationHandler) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        if (authenticationHandler == null) {
+            return headers;
+        }
+        FilterableRequestSpecification request = (FilterableRequestSpecification) given();
+        authenticationHandler.setLogin(request);
+        // a preemptive login, like basic or oauth2, is set as header right away, so it is among the headers
+        request.getHeaders().forEach(header -> headers.put(header.getName(), header.getValue()));
+        return headers;
+    }
+
     public Response sendDelete(AuthenticationHandler authenticationHandler, String deletePath) {
-        return checkDebugPrint(login(authenticationHandler).delete(deletePath));
+        return sent(() -> received(login(authenticationHandler).delete(deletePath)));
     }
 
     public Response sendGet(AuthenticationHandler authenticationHandler, String queryPath) {
@@ -45,7 +119,7 @@ public class Sender {
     }
 
     private Response send(Function<RequestSpecification, Response> call, Object body, AuthenticationHandler authenticationHandler) {
-        return checkDebugPrint(call.apply(initRequest(authenticationHandler).body(body).when()));
+        return sent(() -> received(call.apply(initRequest(authenticationHandler).body(body).when())));
     }
 
     public Response sendPut(AuthenticationHandler authenticationHandler, String theEndpoint, Object object) {
@@ -56,8 +130,237 @@ public class Sender {
         return send(rs -> rs.post(endpoint), body, authenticationHandler);
     }
 
+    /**
+     * Sends a post, which is handled by the given filter in addition, like a filter that reads the response itself.
+     *
+     * @see #sendPost(AuthenticationHandler, String, Object)
+     */
+    public Response sendPost(AuthenticationHandler authenticationHandler, String endpoint, Object body, Filter filter) {
+        return send(rs -> rs.filter(filter).post(endpoint), body, authenticationHandler);
+    }
+
+    /**
+     * Sends a request aside of the scenario, like a login. The request is not remembered as sent request, so that
+     * repeating the latest request still repeats the request of the scenario.
+     *
+     * @param request the request to send
+     * @return the response of the request
+     */
+    public Response sendAside(Supplier<Response> request) {
+        Supplier<Response> sent = sentRequest.get();
+        try {
+            return request.get();
+        } finally {
+            if (sent == null) {
+                sentRequest.remove();
+            } else {
+                sentRequest.set(sent);
+            }
+        }
+    }
+
+    /**
+     * Sends a delete without blocking. The response is not set as latest response.
+     *
+     * @see #sendDelete(AuthenticationHandler, String)
+     */
+    public CompletableFuture<Response> sendDeleteAsync(AuthenticationHandler authenticationHandler, String deletePath) {
+        return async(() -> sendDelete(authenticationHandler, deletePath));
+    }
+
+    /**
+     * Sends a get without blocking. The response is not set as latest response.
+     *
+     * @see #sendGet(AuthenticationHandler, String)
+     */
+    public CompletableFuture<Response> sendGetAsync(AuthenticationHandler authenticationHandler, String queryPath) {
+        return async(() -> sendGet(authenticationHandler, queryPath));
+    }
+
+    /**
+     * Sends a put without blocking. The response is not set as latest response.
+     *
+     * @see #sendPut(AuthenticationHandler, String, Object)
+     */
+    public CompletableFuture<Response> sendPutAsync(AuthenticationHandler authenticationHandler, String theEndpoint, Object object) {
+        return async(() -> sendPut(authenticationHandler, theEndpoint, object));
+    }
+
+    /**
+     * Sends a post without blocking. The response is not set as latest response.
+     *
+     * @see #sendPost(AuthenticationHandler, String, Object)
+     */
+    public CompletableFuture<Response> sendPostAsync(AuthenticationHandler authenticationHandler, String endpoint, Object body) {
+        return async(() -> sendPost(authenticationHandler, endpoint, body));
+    }
+
+    private CompletableFuture<Response> async(Supplier<Response> call) {
+        return CompletableFuture.supplyAsync(Isolated.inCurrentContext(() -> {
+            try {
+                return call.get();
+            } finally {
+                sentRequest.remove();
+            }
+        }), executor());
+    }
+
+    /**
+     * Sends a request repeatedly with the given concurrency and records the latency and status code of each response.
+     * <p>
+     * Each of the <code>concurrency</code> threads sends one request after another, until <code>times</code> requests
+     * are sent. The last response is set as latest response, unless <code>gauge.service.load.discard</code> is set, see
+     * {@link VariableAccessor#loadDiscard()}. Then each response is dropped as soon as it is recorded.
+     *
+     * @param times       the number of requests to send
+     * @param concurrency the number of requests sent at the same time
+     * @param call        sends a single request, for example <code>() -&gt; sendGet(handler, path)</code>
+     * @return the result of all requests
+     */
+    public LoadResult sendRepeatedly(int times, int concurrency, Supplier<Response> call) {
+        boolean discard = variableAccessor.loadDiscard();
+        AtomicReference<Response> last = new AtomicReference<>();
+        LoadResult result = repeat(times, concurrency, call, discard ? null : last);
+        Logger.info("load finished: {}", result);
+        if (last.get() != null) {
+            setResponse(last.get(), call);
+        }
+        return result;
+    }
+
+    private LoadResult repeat(int times, int concurrency, Supplier<Response> call, AtomicReference<Response> last) {
+        if (times < 1 || concurrency < 1) {
+            throw new IllegalArgumentException("times and concurrency must be positive, but are " + times + " and " + concurrency);
+        }
+        int threads = Math.min(times, concurrency);
+        if (threads > variableAccessor.poolMaxPerRoute()) {
+            Logger.warn("concurrency {} exceeds the {} connections per route, requests will wait for a connection",
+                    threads, variableAccessor.poolMaxPerRoute());
+        }
+        LoadResult result = new LoadResult(threads);
+        AtomicInteger remaining = new AtomicInteger(times);
+        // the workers send on behalf of the current thread, with its login
+        Supplier<Void> worker = Isolated.inCurrentContext(() -> {
+            try {
+                while (remaining.getAndDecrement() > 0) {
+                    long start = System.nanoTime();
+                    try {
+                        Response response = call.get();
+                        result.record(response.statusCode(), System.nanoTime() - start);
+                        if (last != null) {
+                            last.set(response);
+                        }
+                    } catch (Exception e) {
+                        // REST Assured rethrows checked exceptions, like a refused connection, undeclared
+                        Logger.debug(e, "request without response");
+                        result.failed(e);
+                    }
+                }
+            } finally {
+                sentRequest.remove();
+            }
+            return null;
+        });
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService load = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gauge-service-load-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        try {
+            CompletableFuture.allOf(IntStream.range(0, threads)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(worker, load))
+                    .toArray(CompletableFuture[]::new)).join();
+        } finally {
+            load.shutdown();
+        }
+        result.finished(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Sends the request of the latest response again and sets its response as latest response.
+     */
+    public void repeatLatestRequest() {
+        Supplier<Response> request = state.get().latestRequest;
+        if (request == null) {
+            throw new IllegalStateException("the latest request cannot be repeated");
+        }
+        Response repeated = request.get();
+        sentRequest.remove();
+        setResponse(repeated, request);
+    }
+
+    /**
+     * Repeats the latest request and records the latency of each repetition. The first
+     * <code>gauge.service.sampling.warmup</code> repetitions are not recorded, then
+     * <code>gauge.service.sampling.samples</code> repetitions are recorded one after another, see
+     * {@link VariableAccessor#samplingWarmup()} and {@link VariableAccessor#samplingSamples()}.
+     * <p>
+     * The samples are taken once per latest response, so that multiple checks of the same request share them. The
+     * latest response itself is not changed.
+     *
+     * @return the latencies of the repetitions
+     */
+    public LatencyHistogram sampleLatencies() {
+        State current = state.get();
+        if (current.samples == null) {
+            Supplier<Response> latestRequest = current.latestRequest;
+            if (latestRequest == null) {
+                throw new IllegalStateException("the latest request cannot be repeated");
+            }
+            int warmup = variableAccessor.samplingWarmup();
+            int count = variableAccessor.samplingSamples();
+            Logger.info("repeating the latest request {} times after {} warm-up requests", count, warmup);
+            if (warmup > 0) {
+                repeat(warmup, 1, latestRequest, null);
+            }
+            LoadResult result = repeat(count, 1, latestRequest, null);
+            if (!result.errors().isEmpty()) {
+                throw new AssertionError("samples without response: " + result);
+            }
+            current.samples = result;
+        }
+        return current.samples.latencies();
+    }
+
+    // bounded to the connections per route, as more parallel requests would only wait for a free connection
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            int threads = variableAccessor.asyncThreads();
+            Logger.info("starting {} threads for asynchronous requests", threads);
+            AtomicInteger counter = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "gauge-service-sender-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the threads for asynchronous requests and closes all resources of the {@link Transport}.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        transport.shutdown();
+    }
+
     private Response send(Function<RequestSpecification, Response> call, AuthenticationHandler authenticationHandler) {
-        return checkDebugPrint(call.apply(initRequest(authenticationHandler).when()));
+        return sent(() -> received(call.apply(initRequest(authenticationHandler).when())));
+    }
+
+    // remembers the request, so that it can be repeated if its response becomes the latest response
+    private Response sent(Supplier<Response> request) {
+        Response response = request.get();
+        sentRequest.set(request);
+        return response;
     }
 
     private RequestSpecification initRequest(AuthenticationHandler authenticationHandler) {
@@ -65,7 +368,7 @@ public class Sender {
     }
 
     private RequestSpecification startRequest() {
-        RequestSpecification request = given();
+        RequestSpecification request = transport.prepare(given()).filter(compression).filter(timingRecorder);
         if (variableAccessor.logAll()) {
             request.when().log().all();
         } else if (variableAccessor.logFailure()) {
@@ -74,6 +377,12 @@ public class Sender {
         return request;
     }
 
+    private Response received(Response response) {
+        // reading the body completes the exchange, so that a pooled connection is released
+        response.asByteArray();
+        return checkDebugPrint(response);
+    }
+
     private Response checkDebugPrint(Response response) {
         if (variableAccessor.logAll()) {
             response.then().log().all();
@@ -84,6 +393,7 @@ public class Sender {
     }
 
     public String getCompleteEndpoint(String path) {
+        String endpoint = state.get().endpoint;
         if (Strings.isNullOrEmpty(endpoint)) {
             throw new IllegalStateException("no endpoint is given");
         }
@@ -97,32 +407,140 @@ public class Sender {
         return base;
     }
 
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
     public VariableAccessor getVariableAccessor() {
         return variableAccessor;
     }
 
     public void setEndpoint(String endpoint) {
-        this.endpoint = endpoint;
+        state.get().endpoint = endpoint;
         Logger.info("endpoint set to {}", endpoint);
     }
 
     public Object path(String path) {
-        return response.then().extract().path(path);
+        return document().read(path);
+    }
+
+    public Map<String, Object> paths(Collection<String> paths) {
+        return document().readAll(paths);
+    }
+
+    public Map<String, Object> streamedPaths(Collection<String> paths) {
+        return document().readStreamed(paths);
+    }
+
+    public Optional<Object> findFirst(String path, Predicate<Object> predicate) {
+        return document().findFirst(path, predicate);
+    }
+
+    public Optional<Object> findFirstWhere(String path, Map<String, String> attributes) {
+        return document().findFirstWhere(path, attributes);
+    }
+
+    public boolean isStreaming() {
+        return variableAccessor.streaming();
     }
 
     public void assertResponse(String path, Matcher<?> matcher) {
-        response.then().assertThat().body(path, matcher);
+        MatcherAssert.assertThat("path " + path + " doesn't match.", document().read(path), (Matcher<Object>) matcher);
+    }
+
+    private ResponseDocument document() {
+        ResponseDocument document = state.get().document;
+        if (document == null) {
+            throw new IllegalStateException("no response is given");
+        }
+        return document;
     }
 
     public String responseAsJson() {
-        return response.body().asString();
+        return response().body().asString();
     }
 
     public void verifyStatusCode(int expected) {
-        response.then().statusCode(is(expected));
+        response().then().statusCode(is(expected));
     }
 
+    /**
+     * Verifies the latency of the latest request. If <code>gauge.service.sampling.percentile</code> is given, the
+     * percentile of repetitions of the latest request is verified, see {@link #verifyPercentileInLessThan(double, long)}.
+     *
+     * @param timeout the maximal latency in milliseconds
+     */
     public void verifyRequestInLessThan(long timeout) {
-        response.then().time(lessThanOrEqualTo(timeout));
+        Optional<Double> percentile = variableAccessor.samplingPercentile();
+        if (percentile.isPresent()) {
+            verifyPercentileInLessThan(percentile.get(), timeout);
+        } else {
+            response().then().time(lessThanOrEqualTo(timeout));
+        }
+    }
+
+    /**
+     * Verifies the given percentile of the latencies of repetitions of the latest request.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @param timeout    the maximal latency in milliseconds
+     * @see #sampleLatencies()
+     */
+    public void verifyPercentileInLessThan(double percentile, long timeout) {
+        LatencyHistogram latencies = sampleLatencies();
+        String name = "p" + BigDecimal.valueOf(percentile).stripTrailingZeros().toPlainString();
+        MatcherAssert.assertThat(name + " of " + latencies.count() + " samples, " + latencies,
+                latencies.percentile(percentile), lessThanOrEqualTo((double) timeout));
+    }
+
+    /**
+     * Returns the time the latest request spent in each phase.
+     *
+     * @return the timing of the latest request
+     */
+    public RequestTiming timing() {
+        Response response = state.get().response;
+        if (response == null) {
+            throw new IllegalStateException("no response is given");
+        }
+        return RequestTiming.of(response).orElseThrow(() -> new IllegalStateException("no timing is recorded for the latest response"));
+    }
+
+    public void verifyPhaseInLessThan(RequestTiming.Phase phase, long timeout) {
+        RequestTiming timing = timing();
+        double millis = timing.millis(phase);
+        if (millis < 0) {
+            throw new IllegalStateException(phase.toString().toLowerCase() + " is not available with transport " + variableAccessor.transport());
+        }
+        MatcherAssert.assertThat(phase.toString().toLowerCase() + " of " + timing, millis, lessThanOrEqualTo((double) timeout));
+    }
+
+    private Response response() {
+        return state.get().response;
+    }
+
+    /**
+     * Releases the endpoint and the latest response of the current thread at the end of a scenario, see
+     * {@link Isolated#release()}.
+     */
+    public void release() {
+        state.release();
+    }
+
+    private static final class State {
+        private String endpoint;
+        private Response response;
+        private ResponseDocument document;
+        // repeats the request of the latest response, if known
+        private Supplier<Response> latestRequest;
+        private LoadResult samples;
+
+        private State(String endpoint) {
+            this.endpoint = endpoint;
+        }
     }
 }
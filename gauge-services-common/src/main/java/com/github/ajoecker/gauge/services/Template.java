@@ -0,0 +1,133 @@
+package com.github.ajoecker.gauge.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * A string with variables like <code>%name%</code>, parsed once into literal text and variables, so that it can be
+ * rendered in a single pass.
+ * <p>
+ * A variable starts with <code>%</code> and ends with the next <code>%</code> in the same line, with at least one
+ * character in between. Its name is the text in between without <code>%</code> and surrounding whitespace. In the
+ * rendered string, each <code>"</code> of a value is masked as <code>\"</code>.
+ */
+final class Template {
+    private static final char MASK = '%';
+    // the same query or path is rendered again and again
+    private static final BoundedCache<String, Template> cache = new BoundedCache<>();
+
+    private final String source;
+    // the literal text before each variable, followed by the literal text after the last variable
+    private final List<String> literals;
+    private final List<String> variables;
+
+    private Template(String source, List<String> literals, List<String> variables) {
+        this.source = source;
+        this.literals = literals;
+        this.variables = variables;
+    }
+
+    /**
+     * Returns the template of the given string.
+     *
+     * @param source the string with variables
+     * @return the template
+     */
+    static Template of(String source) {
+        return cache.get(source, Template::parse);
+    }
+
+    private static Template parse(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        int literalStart = 0;
+        int start = source.indexOf(MASK);
+        while (start >= 0) {
+            int end = endOfVariable(source, start);
+            if (end < 0) {
+                start = source.indexOf(MASK, start + 1);
+            } else {
+                literals.add(source.substring(literalStart, start));
+                variables.add(source.substring(start, end + 1).replace(String.valueOf(MASK), "").trim());
+                literalStart = end + 1;
+                start = source.indexOf(MASK, literalStart);
+            }
+        }
+        literals.add(source.substring(literalStart));
+        return new Template(source, literals, variables);
+    }
+
+    // the index of the closing mask of the variable starting at the given index or -1, if none is in the same line
+    private static int endOfVariable(String source, int start) {
+        for (int i = start + 1; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (isLineTerminator(c)) {
+                return -1;
+            }
+            if (c == MASK && i > start + 1) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Returns the name of the variable, if the string is a single variable without any text around, like
+     * <code>%size%</code>.
+     *
+     * @return the name of the variable or an empty {@link Optional}
+     */
+    Optional<String> variable() {
+        boolean single = variables.size() == 1 && literals.get(0).isEmpty() && literals.get(1).isEmpty();
+        return single ? Optional.of(variables.get(0)) : Optional.empty();
+    }
+
+    /**
+     * Replaces all variables by their values. Each variable is looked up once, even if it is used multiple times.
+     *
+     * @param retriever looks up the value of a variable by its name
+     * @return the rendered string
+     * @throws java.util.NoSuchElementException if a variable has no value
+     */
+    String render(Function<String, Optional<Object>> retriever) {
+        return render(retriever, true);
+    }
+
+    /**
+     * Replaces all variables by their values, which are masked or not.
+     *
+     * @param retriever looks up the value of a variable by its name
+     * @param masked    whether each <code>"</code> of a value is masked as <code>\"</code>
+     * @return the rendered string
+     * @throws java.util.NoSuchElementException if a variable has no value
+     */
+    String render(Function<String, Optional<Object>> retriever, boolean masked) {
+        if (variables.isEmpty()) {
+            return source;
+        }
+        Map<String, String> values = new HashMap<>();
+        StringBuilder rendered = new StringBuilder(source.length() + 16 * variables.size());
+        for (int i = 0; i < variables.size(); i++) {
+            rendered.append(literals.get(i));
+            String variable = variables.get(i);
+            String value = values.get(variable);
+            if (value == null) {
+                value = retriever.apply(variable).map(Object::toString).orElseThrow();
+                if (masked) {
+                    value = value.replace("\"", "\\\"");
+                }
+                values.put(variable, value);
+            }
+            rendered.append(value);
+        }
+        return rendered.append(literals.get(variables.size())).toString();
+    }
+}
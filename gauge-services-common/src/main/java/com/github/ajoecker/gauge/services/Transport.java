@@ -0,0 +1,81 @@
+package com.github.ajoecker.gauge.services;
+
+import io.restassured.specification.RequestSpecification;
+import org.tinylog.Logger;
+
+import java.net.http.HttpClient;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The transport that is used by a {@link Sender} to send its requests over the network.
+ * <p>
+ * The transport is selected via the gauge environment <code>gauge.service.transport</code>, see
+ * {@link VariableAccessor#transport()}.
+ */
+public interface Transport {
+    enum Type {
+        RESTASSURED, HTTPCLIENT
+    }
+
+    /**
+     * Prepares the given request to be sent by this transport.
+     *
+     * @param request the request to send
+     * @return the prepared request
+     */
+    RequestSpecification prepare(RequestSpecification request);
+
+    /**
+     * Returns a human readable summary of the usage of this transport.
+     *
+     * @return the summary
+     */
+    String summary();
+
+    /**
+     * Closes all resources of this transport. A succeeding request reopens them if required.
+     */
+    void shutdown();
+
+    /**
+     * Creates the transport that is configured in the given {@link VariableAccessor}.
+     *
+     * @param variableAccessor the configuration
+     * @return the configured transport
+     * @throws IllegalArgumentException if the transport or the http version is unknown
+     */
+    static Transport of(VariableAccessor variableAccessor) {
+        String type = variableAccessor.transport();
+        Logger.info("transport = {}", type);
+        switch (named(type, Type.values(), "transport")) {
+            case RESTASSURED:
+                return new ConnectionPool(variableAccessor);
+
+            case HTTPCLIENT:
+                return new HttpClientTransport(named(variableAccessor.httpVersion(), HttpClient.Version.values(), "http version"),
+                        Compression.encodings(variableAccessor.acceptEncoding()));
+
+            default:
+                throw new IllegalArgumentException("unknown transport: " + type);
+        }
+    }
+
+    /**
+     * Returns the value of the given name, like <code>valueOf</code>, but regardless of the case of the name.
+     *
+     * @param name the name of the value
+     * @param values all values
+     * @param kind the kind of the values, which is named in the failure
+     * @param <T> the type of the values
+     * @return the value of the given name
+     * @throws IllegalArgumentException if no value has the given name, naming all valid names
+     */
+    static <T extends Enum<T>> T named(String name, T[] values, String kind) {
+        return Arrays.stream(values)
+                .filter(value -> value.name().equalsIgnoreCase(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("unknown " + kind + " '" + name + "', valid are "
+                        + Arrays.stream(values).map(value -> value.name().toLowerCase()).collect(Collectors.joining(", "))));
+    }
+}
@@ -1,5 +1,10 @@
 package com.github.ajoecker.gauge.services;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
 public class VariableAccessor {
     private static final String FAILURE = "failure";
     private static final String ALL = "all";
@@ -36,7 +41,158 @@ public class VariableAccessor {
         return System.getenv("gauge.service.token.query");
     }
 
+    public String tokenExpiresPath() {
+        return System.getenv("gauge.service.token.expires.path");
+    }
+
+    public long tokenRefresh() {
+        return longValue("gauge.service.token.refresh", 30);
+    }
+
+    public Optional<String> tokenStore() {
+        return Optional.ofNullable(System.getenv("gauge.service.token.store")).filter(value -> !value.isBlank());
+    }
+
     public String endpoint() {
         return System.getenv("gauge.service.endpoint");
     }
+
+    public String transport() {
+        return Optional.ofNullable(System.getenv("gauge.service.transport")).orElse(Transport.Type.RESTASSURED.toString());
+    }
+
+    public String httpVersion() {
+        return Optional.ofNullable(System.getenv("gauge.service.http.version")).orElse("HTTP_2");
+    }
+
+    public int poolMaxTotal() {
+        return intValue("gauge.service.pool.max", 50);
+    }
+
+    public int poolMaxPerRoute() {
+        return intValue("gauge.service.pool.route", 20);
+    }
+
+    public long poolKeepAlive() {
+        return longValue("gauge.service.pool.keepalive", 30_000);
+    }
+
+    public long poolIdleTimeout() {
+        return longValue("gauge.service.pool.idle", 60_000);
+    }
+
+    public int asyncThreads() {
+        return intValue("gauge.service.async.threads", poolMaxPerRoute());
+    }
+
+    public boolean streaming() {
+        return Boolean.parseBoolean(System.getenv("gauge.service.streaming"));
+    }
+
+    public String compression() {
+        return Optional.ofNullable(System.getenv("gauge.service.compression")).orElse(Compression.Encoding.NONE.toString());
+    }
+
+    public int compressionMinSize() {
+        return intValue("gauge.service.compression.min", 1024);
+    }
+
+    public String acceptEncoding() {
+        return Optional.ofNullable(System.getenv("gauge.service.accept.encoding")).orElse("gzip,deflate");
+    }
+
+    public boolean loadDiscard() {
+        return Boolean.parseBoolean(System.getenv("gauge.service.load.discard"));
+    }
+
+    public int samplingWarmup() {
+        return intValue("gauge.service.sampling.warmup", 3);
+    }
+
+    public int samplingSamples() {
+        return intValue("gauge.service.sampling.samples", 20);
+    }
+
+    public Optional<Double> samplingPercentile() {
+        return Optional.ofNullable(System.getenv("gauge.service.sampling.percentile"))
+                .filter(value -> !value.isBlank())
+                .map(value -> Double.parseDouble(value.trim()));
+    }
+
+    public long pollInterval() {
+        return longValue("gauge.service.poll.interval", 250);
+    }
+
+    public double pollBackoff() {
+        return Optional.ofNullable(System.getenv("gauge.service.poll.backoff"))
+                .filter(value -> !value.isBlank())
+                .map(value -> Double.parseDouble(value.trim()))
+                .orElse(1.5);
+    }
+
+    public long pollMaxInterval() {
+        return longValue("gauge.service.poll.interval.max", 5_000);
+    }
+
+    public boolean graphqlVariables() {
+        return Boolean.parseBoolean(System.getenv("gauge.service.graphql.variables"));
+    }
+
+    public boolean graphqlPersistedQueries() {
+        return Boolean.parseBoolean(System.getenv("gauge.service.graphql.apq"));
+    }
+
+    public int graphqlBatchSize() {
+        return intValue("gauge.service.graphql.batch.size", 10);
+    }
+
+    public boolean graphqlIncremental() {
+        return Boolean.parseBoolean(System.getenv("gauge.service.graphql.incremental"));
+    }
+
+    public Optional<String> graphqlSchema() {
+        return Optional.ofNullable(System.getenv("gauge.service.graphql.schema")).filter(value -> !value.isBlank());
+    }
+
+    public int graphqlSubscriptionBuffer() {
+        return intValue("gauge.service.graphql.subscription.buffer", 1000);
+    }
+
+    public Optional<String> graphqlSubscriptionTimestamp() {
+        return Optional.ofNullable(System.getenv("gauge.service.graphql.subscription.timestamp")).filter(value -> !value.isBlank());
+    }
+
+    public int jsonDiffMax() {
+        return intValue("gauge.service.json.diff.max", 10);
+    }
+
+    public List<String> jsonDiffIgnore() {
+        return listValue("gauge.service.json.diff.ignore");
+    }
+
+    public List<String> jsonDiffUnordered() {
+        return listValue("gauge.service.json.diff.unordered");
+    }
+
+    public Isolated.Isolation isolation() {
+        return Isolated.Isolation.valueOf(Optional.ofNullable(System.getenv("gauge.service.isolation"))
+                .orElse(Isolated.Isolation.NONE.toString()).trim().toUpperCase());
+    }
+
+    private List<String> listValue(String key) {
+        return Optional.ofNullable(System.getenv(key)).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private int intValue(String key, int defaultValue) {
+        return (int) longValue(key, defaultValue);
+    }
+
+    private long longValue(String key, long defaultValue) {
+        String value = System.getenv(key);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
 }
@@ -2,6 +2,11 @@ package com.github.ajoecker.gauge.services.common;
 
 import com.github.ajoecker.gauge.random.data.VariableStorage;
 import com.github.ajoecker.gauge.services.Connector;
+import com.github.ajoecker.gauge.services.Registry;
+import com.github.ajoecker.gauge.services.RequestTiming;
+import com.thoughtworks.gauge.AfterScenario;
+import com.thoughtworks.gauge.AfterSuite;
+import com.thoughtworks.gauge.Gauge;
 import com.thoughtworks.gauge.Step;
 import com.thoughtworks.gauge.Table;
 import org.tinylog.Logger;
@@ -23,6 +28,46 @@ public final class Common extends Service<Connector> {
         requestInLessThanMs(timeout * 1000);
     }
 
+    @Step({"Then <percentile> latency is less than <timeout> ms", "And <percentile> latency is less than <timeout> ms",
+            "Then <percentile> latency is less than <timeout>ms", "And <percentile> latency is less than <timeout>ms"})
+    public void percentileInLessThanMs(String percentile, long timeout) {
+        sender.verifyPercentileInLessThan(percentileOf(percentile), timeout);
+    }
+
+    @Step({"Then median latency is less than <timeout> ms", "And median latency is less than <timeout> ms",
+            "Then median latency is less than <timeout>ms", "And median latency is less than <timeout>ms"})
+    public void medianInLessThanMs(long timeout) {
+        sender.verifyPercentileInLessThan(50, timeout);
+    }
+
+    /**
+     * Returns the given percentile as number, like <code>95</code> for <code>p95</code>, <code>99.9</code> or
+     * <code>50</code> for <code>median</code>.
+     *
+     * @param percentile the percentile
+     * @return the number of the percentile
+     * @throws NumberFormatException if the percentile is no number
+     */
+    public static double percentileOf(String percentile) {
+        String value = percentile.trim().toLowerCase();
+        if ("median".equals(value)) {
+            return 50;
+        }
+        return Double.parseDouble(value.startsWith("p") ? value.substring(1) : value);
+    }
+
+    @Step({"Then time to first byte is less than <timeout> ms", "And time to first byte is less than <timeout> ms",
+            "Then time to first byte is less than <timeout>ms", "And time to first byte is less than <timeout>ms"})
+    public void timeToFirstByteInLessThanMs(long timeout) {
+        phaseInLessThanMs(RequestTiming.Phase.TTFB.toString(), timeout);
+    }
+
+    @Step({"Then the <phase> time is less than <timeout> ms", "And the <phase> time is less than <timeout> ms",
+            "Then the <phase> time is less than <timeout>ms", "And the <phase> time is less than <timeout>ms"})
+    public void phaseInLessThanMs(String phase, long timeout) {
+        sender.verifyPhaseInLessThan(RequestTiming.Phase.valueOf(phase.trim().toUpperCase()), timeout);
+    }
+
     @Step({"Then status code is <code>", "And status code is <code>"})
     public void verifyStatusCode(int expected) {
         sender.verifyStatusCode(expected);
@@ -38,6 +83,18 @@ public final class Common extends Service<Connector> {
         }
     }
 
+    @AfterScenario
+    public void release() {
+        Registry.get().release();
+    }
+
+    @AfterSuite
+    public void shutdown() {
+        Gauge.writeMessage(sender.getTransport().summary());
+        Gauge.writeMessage(sender.getCompression().summary());
+        sender.shutdown();
+    }
+
     @Step("Given the endpoint <endpoint>")
     public void useEndpoint(String endpoint) {
         sender.setEndpoint(endpoint);
@@ -76,6 +133,11 @@ public final class Common extends Service<Connector> {
         connector().extract(variable, "", attributeValue, variable);
     }
 
+    @Step({"Then extracting values from <table>", "And extracting values from <table>"})
+    public void extractAll(Table table) {
+        connector().extractAll(table);
+    }
+
     @Step({"Then extracting <variable> as sum of <sum>", "And extracting <variable> as sum of <sum>"})
     public void extractAsSum(String variable, String sum) {
         connector().extractSum(variable, sum);
@@ -92,6 +154,12 @@ public final class Common extends Service<Connector> {
         connector().post(query, "", authenticationHandler);
     }
 
+    @Step({"When posting <query> <times> times with concurrency <concurrency>",
+            "And posting <query> <times> times with concurrency <concurrency>"})
+    public void postingRepeatedly(String query, int times, int concurrency) {
+        Gauge.writeMessage(connector().postRepeatedly(query, "", times, concurrency, authenticationHandler).toString());
+    }
+
     @Step({"When posting <query> with <table>", "And posting <query> with <table>"})
     public void postingWithParameters(String query, Table table) {
         connector().post(query, "", table, authenticationHandler);
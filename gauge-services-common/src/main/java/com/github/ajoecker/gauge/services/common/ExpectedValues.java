@@ -0,0 +1,104 @@
+package com.github.ajoecker.gauge.services.common;
+
+import com.github.ajoecker.gauge.services.BoundedCache;
+import com.thoughtworks.gauge.Table;
+import com.thoughtworks.gauge.TableCell;
+import com.thoughtworks.gauge.TableRow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static java.util.Arrays.stream;
+
+/**
+ * Converts the expected value of a step into the values, which are matched against the latest response.
+ * <p>
+ * The expected value is either
+ * <ul>
+ * <li>a comma separated list, like <code>Pablo Picasso, Banksy</code></li>
+ * <li>a comma separated list of maps, like <code>{name: foo, value: bar}, {name: baz, value: qux}</code></li>
+ * <li>a gauge table, of which each row is a map of column name to value</li>
+ * </ul>
+ * The values of an expected value are parsed once and kept as immutable values, as the same step of a data driven
+ * specification runs again and again with the same expected value.
+ */
+public final class ExpectedValues {
+    private static final String COMMA_SEPARATED = "\\s*,\\s*";
+    // the values by the literal they are parsed from, like a list or a map
+    private static final BoundedCache<String, Object[]> literals = new BoundedCache<>();
+    // the values by the column names and cells of the table they are parsed from
+    private static final BoundedCache<List<List<String>>, Object[]> tables = new BoundedCache<>();
+
+    private ExpectedValues() {
+        // static
+    }
+
+    /**
+     * Passes the values of the given expected value to the given match.
+     *
+     * @param value the expected value, either a {@link String} or a {@link Table}
+     * @param match the match, like {@link com.github.ajoecker.gauge.services.Connector#thenIs(String)}
+     */
+    public static void compare(Object value, Consumer<Object[]> match) {
+        if (value instanceof String) {
+            compareStringValue((String) value, match);
+        } else if (value instanceof Table) {
+            match.accept(values((Table) value));
+        }
+    }
+
+    private static void compareStringValue(String value, Consumer<Object[]> match) {
+        match.accept(values(value));
+    }
+
+    private static Object[] values(Table table) {
+        List<List<String>> key = new ArrayList<>();
+        key.add(List.copyOf(table.getColumnNames()));
+        table.getTableRows().forEach(row -> key.add(List.copyOf(row.getCellValues())));
+        // a copy of the kept values, as the array itself could be changed by the caller
+        return tables.get(key, k -> table.getTableRows().stream().map(ExpectedValues::fromTable).toArray(Map[]::new)).clone();
+    }
+
+    /**
+     * Returns the values of the given expected value, either maps or strings.
+     *
+     * @param value the comma separated list of values or maps
+     * @return the values, of which the maps are immutable
+     */
+    public static Object[] values(String value) {
+        return literals.get(value, v -> isMap(v) ? parseMap(v) : split(v)).clone();
+    }
+
+    private static Object[] parseMap(String value) {
+        String[] values = value.trim().split("}" + COMMA_SEPARATED);
+        return stream(values).map(ExpectedValues::toMap).toArray(Map[]::new);
+    }
+
+    private static Map<String, String> toMap(String full) {
+        String prepared = full.replace("{", "").replace("}", "");
+        return stream(prepared.split(COMMA_SEPARATED))
+                .map(s -> s.split(":"))
+                .collect(Collectors.toUnmodifiableMap(a -> a[0].trim(), a -> a[1].trim()));
+    }
+
+    private static boolean isMap(String value) {
+        return value.contains("{") && value.contains("}");
+    }
+
+    private static Map<String, String> fromTable(TableRow tableRow) {
+        return tableRow.getTableCells().stream().collect(Collectors.toUnmodifiableMap(TableCell::getColumnName, TableCell::getValue));
+    }
+
+    /**
+     * Splits the given comma separated list.
+     *
+     * @param stringValue the list
+     * @return the trimmed values
+     */
+    public static String[] split(String stringValue) {
+        return stringValue.trim().split(COMMA_SEPARATED);
+    }
+}
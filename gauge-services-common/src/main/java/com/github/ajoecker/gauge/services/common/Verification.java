@@ -1,11 +1,14 @@
 package com.github.ajoecker.gauge.services.common;
 
 import com.github.ajoecker.gauge.services.Connector;
+import com.github.ajoecker.gauge.services.Poller;
 import com.thoughtworks.gauge.*;
+import org.hamcrest.Description;
+import org.hamcrest.Matcher;
+import org.hamcrest.StringDescription;
 import org.tinylog.Logger;
 
 import java.util.*;
-import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static java.util.Arrays.stream;
@@ -14,18 +17,16 @@ import static org.assertj.core.api.Assertions.fail;
 import static org.hamcrest.Matchers.*;
 
 public final class Verification extends Service<Connector> {
-    private static final String COMMA_SEPARATED = "\\s*,\\s*";
-
     @ContinueOnFailure
     @Step({"Then <path> contains <value>", "And <path> contains <value>"})
     public void thenContains(String dataPath, Object value) {
-        compare(value, connector().thenContains(dataPath));
+        ExpectedValues.compare(value, connector().thenContains(dataPath));
     }
 
     @ContinueOnFailure
     @Step({"Then <path> start with <value>", "And <path> start with <value>"})
     public void startWith(String dataPath, Object value) {
-        compare(value, connector().startWith(dataPath));
+        ExpectedValues.compare(value, connector().startWith(dataPath));
     }
 
     @ContinueOnFailure
@@ -33,7 +34,16 @@ public final class Verification extends Service<Connector> {
     public void thenIs(String dataPath, Object value) {
         connector().getFromVariableStorage(dataPath).
                 ifPresentOrElse(v -> assertThat(v.toString()).isEqualTo(value),
-                        () -> compare(value, connector().thenIs(dataPath)));
+                        () -> ExpectedValues.compare(value, connector().thenIs(dataPath)));
+    }
+
+    @ContinueOnFailure
+    @Step({"Then polling until <path> is <value> within <timeout> s", "And polling until <path> is <value> within <timeout> s",
+            "Then polling until <path> is <value> within <timeout>s", "And polling until <path> is <value> within <timeout>s"})
+    public void pollingUntil(String dataPath, Object value, long timeout) {
+        Poller.Result result = Poller.of(sender.getVariableAccessor()).until(
+                () -> ExpectedValues.compare(value, connector().thenIs(dataPath)), sender::repeatLatestRequest, timeout * 1000);
+        Gauge.writeMessage(dataPath + " is " + value + " after " + result);
     }
 
     @ContinueOnFailure
@@ -42,7 +52,7 @@ public final class Verification extends Service<Connector> {
         Object actualValue = connector().getFromVariableStorage(actual).orElseThrow();
         List<String> errorMessages = new ArrayList<>();
 
-        stream(split(allExpected)).forEach(each -> connector().getFromVariableStorage(each.trim()).ifPresentOrElse(s -> {
+        stream(ExpectedValues.split(allExpected)).forEach(each -> connector().getFromVariableStorage(each.trim()).ifPresentOrElse(s -> {
             if (!s.equals(actualValue)) {
                 errorMessages.add(each + " (" + s + ") is not equal to " + actual + " (" + actualValue + ")");
             } else {
@@ -53,6 +63,60 @@ public final class Verification extends Service<Connector> {
         assertThat(errorMessages).withFailMessage("\n" + errorMessages.stream().collect(Collectors.joining("\n"))).isEmpty();
     }
 
+    @ContinueOnFailure
+    @Step({"Then the response matches <table>", "And the response matches <table>"})
+    public void thenMatches(Table table) {
+        List<String> paths = table.getTableRows().stream().map(row -> row.getCell("path").trim()).collect(Collectors.toList());
+        Map<String, Object> values = connector().fromLatestResponse(paths);
+        List<String> errorMessages = new ArrayList<>();
+
+        table.getTableRows().forEach(row -> {
+            String path = row.getCell("path").trim();
+            String operator = row.getCell("operator").trim().toLowerCase();
+            String expected = table.getColumnNames().contains("expected") ? row.getCell("expected") : "";
+            // like the single step, "is" compares a stored variable instead of the response
+            Optional<Object> variable = ("is".equals(operator) || "are".equals(operator)) ? connector().getFromVariableStorage(path) : Optional.empty();
+            Object actual = variable.isPresent() ? variable.get().toString() : values.get(path);
+            Matcher<?> matcher = variable.isPresent() ? equalTo(expected) : matcherOf(operator, actual, expected);
+            if (matcher.matches(actual)) {
+                Logger.info("{} {} {}", path, operator, expected);
+            } else {
+                Description description = new StringDescription().appendText(path + ": expected ").appendDescriptionOf(matcher).appendText(", but ");
+                matcher.describeMismatch(actual, description);
+                errorMessages.add(description.toString());
+            }
+        });
+
+        assertThat(errorMessages).withFailMessage("\n" + errorMessages.stream().collect(Collectors.joining("\n"))).isEmpty();
+    }
+
+    // the operators of the single steps, like "is" of "Then <path> is <value>"
+    private static Matcher<?> matcherOf(String operator, Object actual, String expected) {
+        switch (operator) {
+            case "is":
+            case "are":
+                return Connector.isMatcher(actual, ExpectedValues.values(expected));
+            case "contains":
+                return Connector.containsMatcher(actual, ExpectedValues.values(expected));
+            case "start with":
+                return Connector.startWithMatcher(actual, ExpectedValues.values(expected));
+            case "is empty":
+            case "empty":
+                return empty();
+            case "is not empty":
+            case "not empty":
+                return not(empty());
+            case "is true":
+            case "true":
+                return is(true);
+            case "is false":
+            case "false":
+                return is(false);
+            default:
+                throw new IllegalArgumentException("unknown operator " + operator);
+        }
+    }
+
     @ContinueOnFailure
     @Step({"Then <inJson> from json <toJson> is <value>", "And <inJson> from json <toJson> is <value>"})
     public void jsonExtractionEqual(String pathInJson, String pathtoJson, Object value) {
@@ -105,49 +169,4 @@ public final class Verification extends Service<Connector> {
     public void thenFalse(String dataPath) {
         connector().assertResponse(dataPath, is(false));
     }
-
-    private void compare(Object value, Consumer<Object[]> match) {
-        if (value instanceof String) {
-            compareStringValue((String) value, match);
-        } else if (value instanceof Table) {
-            List<String> value1 = ((Table) value).getColumnValues("value");
-            List<Map<String, String>> expected = ((Table) value).getTableRows().stream().map(this::fromTable).collect(Collectors.toList());
-            match.accept(expected.toArray(new Map[expected.size()]));
-        }
-    }
-
-    private void compareStringValue(String value, Consumer<Object[]> match) {
-        String stringValue = value;
-        if (isMap(stringValue)) {
-            List<Map<String, String>> expected = parseMap(stringValue);
-            match.accept(expected.toArray(new Map[expected.size()]));
-        } else {
-            List<String> expected = Arrays.asList(split(stringValue));
-            match.accept(expected.toArray(new String[expected.size()]));
-        }
-    }
-
-    private List<Map<String, String>> parseMap(String value) {
-        String[] values = value.trim().split("}" + COMMA_SEPARATED);
-        return stream(values).map(this::toMap).collect(Collectors.toList());
-    }
-
-    private Map<String, String> toMap(String full) {
-        String prepared = full.replace("{", "").replace("}", "");
-        return stream(prepared.split(COMMA_SEPARATED))
-                .map(s -> s.split(":"))
-                .collect(Collectors.toMap(a -> a[0].trim(), a -> a[1].trim()));
-    }
-
-    private boolean isMap(String value) {
-        return value.contains("{") && value.contains("}");
-    }
-
-    private Map<String, String> fromTable(TableRow tableRow) {
-        return tableRow.getTableCells().stream().collect(Collectors.toMap(TableCell::getColumnName, TableCell::getValue));
-    }
-
-    private static String[] split(String stringValue) {
-        return stringValue.trim().split(COMMA_SEPARATED);
-    }
 }
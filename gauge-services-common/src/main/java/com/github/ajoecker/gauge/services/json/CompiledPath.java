@@ -0,0 +1,473 @@
+package com.github.ajoecker.gauge.services.json;
+
+import com.github.ajoecker.gauge.services.BoundedCache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A path expression that is compiled once and evaluated directly against a parsed json document (of {@link Map}s and
+ * {@link List}s) without the groovy based GPath evaluation of REST Assured.
+ * <p>
+ * The compiler understands the subset of GPath that is used by the steps:
+ * <ul>
+ * <li>dot separated properties, like <code>data.artists.name</code>, which are collected over lists</li>
+ * <li>quoted properties, like <code>data.'first-name'</code></li>
+ * <li>indexes, like <code>artists[0].name</code></li>
+ * <li>simple filters, like <code>items.find{ it.id == 16516 }</code> or
+ * <code>items.findAll{ it.status != 'done' &amp;&amp; it.count &gt; 2 }</code></li>
+ * <li><code>size()</code></li>
+ * </ul>
+ * Expressions beyond that are not compiled. Whenever a compiled expression meets a document it cannot evaluate exactly
+ * like GPath (e.g. a filter over a list with <code>null</code> elements), it throws an {@link UnsupportedOperationException}, so that the caller can
+ * fall back to GPath.
+ */
+public final class CompiledPath {
+    private static final BoundedCache<String, Optional<CompiledPath>> cache = new BoundedCache<>();
+    // properties groovy resolves on the list itself instead of collecting them from the elements
+    private static final Set<String> LIST_PROPERTIES = Set.of("class", "empty", "metaClass", "properties");
+
+    private final String expression;
+    private final List<Step> steps;
+
+    private CompiledPath(String expression, List<Step> steps) {
+        this.expression = expression;
+        this.steps = steps;
+    }
+
+    /**
+     * Compiles the given expression. Each expression is compiled only once and cached afterwards.
+     *
+     * @param expression the path expression
+     * @return the compiled path or an empty {@link Optional}, if the expression is not supported
+     */
+    public static Optional<CompiledPath> compile(String expression) {
+        return cache.get(expression, key -> new Parser(key).parse().map(steps -> new CompiledPath(key, steps)));
+    }
+
+    /**
+     * Evaluates this path against the given parsed document.
+     *
+     * @param root the root of the document
+     * @return the found value or <code>null</code> if the path does not exist
+     * @throws UnsupportedOperationException if the document cannot be evaluated exactly like GPath would
+     */
+    public Object evaluate(Object root) {
+        Object value = root;
+        for (Step step : steps) {
+            value = step.apply(value);
+        }
+        return value;
+    }
+
+    /**
+     * Returns the keys of this path, if it consists only of properties and indexes, like <code>data.items[2].id</code>.
+     * Properties are returned as {@link String}, indexes as {@link Integer}.
+     *
+     * @return the keys or an empty {@link Optional}, if the path contains filters or functions
+     */
+    public Optional<List<Object>> keys() {
+        List<Object> keys = new ArrayList<>();
+        for (Step step : steps) {
+            if (step instanceof Property) {
+                keys.add(((Property) step).name);
+            } else if (step instanceof Index) {
+                keys.add(((Index) step).index);
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(keys);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private interface Step {
+        Object apply(Object value);
+    }
+
+    private static final class Property implements Step {
+        private final String name;
+
+        Property(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Object apply(Object value) {
+            if (value == null) {
+                return null;
+            }
+            if (value instanceof Map) {
+                return ((Map<?, ?>) value).get(name);
+            }
+            if (value instanceof List && !LIST_PROPERTIES.contains(name)) {
+                List<Object> collected = new ArrayList<>();
+                for (Object element : (List<?>) value) {
+                    if (element != null) {
+                        collected.add(apply(element));
+                    }
+                }
+                return collected;
+            }
+            throw unsupported(value);
+        }
+    }
+
+    private static final class Index implements Step {
+        private final int index;
+
+        Index(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Object apply(Object value) {
+            if (value instanceof List) {
+                List<?> list = (List<?>) value;
+                return index < list.size() ? list.get(index) : null;
+            }
+            throw unsupported(value);
+        }
+    }
+
+    private static final class Size implements Step {
+        @Override
+        public Object apply(Object value) {
+            if (value instanceof List) {
+                return ((List<?>) value).size();
+            }
+            if (value instanceof Map) {
+                return ((Map<?, ?>) value).size();
+            }
+            if (value instanceof String) {
+                return ((String) value).length();
+            }
+            throw unsupported(value);
+        }
+    }
+
+    private static final class Find implements Step {
+        private final List<Comparison> conditions;
+        private final boolean all;
+
+        Find(List<Comparison> conditions, boolean all) {
+            this.conditions = conditions;
+            this.all = all;
+        }
+
+        @Override
+        public Object apply(Object value) {
+            if (!(value instanceof List)) {
+                throw unsupported(value);
+            }
+            List<Object> found = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                if (element == null) {
+                    throw unsupported(null);
+                }
+                if (conditions.stream().allMatch(condition -> condition.test(element))) {
+                    if (!all) {
+                        return element;
+                    }
+                    found.add(element);
+                }
+            }
+            return all ? found : null;
+        }
+    }
+
+    private static final class Comparison {
+        private final List<Step> left;
+        private final String operator;
+        private final Object literal;
+
+        Comparison(List<Step> left, String operator, Object literal) {
+            this.left = left;
+            this.operator = operator;
+            this.literal = literal;
+        }
+
+        boolean test(Object element) {
+            Object actual = element;
+            for (Step step : left) {
+                actual = step.apply(actual);
+            }
+            switch (operator) {
+                case "==":
+                    return isEqual(actual, literal);
+                case "!=":
+                    return !isEqual(actual, literal);
+                default:
+                    return compare(actual, literal);
+            }
+        }
+
+        private boolean compare(Object actual, Object expected) {
+            int result;
+            if (actual instanceof Number && expected instanceof Number) {
+                result = compareNumbers((Number) actual, (Number) expected);
+            } else if (actual instanceof String && expected instanceof String) {
+                result = ((String) actual).compareTo((String) expected);
+            } else {
+                throw unsupported(actual);
+            }
+            switch (operator) {
+                case "<":
+                    return result < 0;
+                case "<=":
+                    return result <= 0;
+                case ">":
+                    return result > 0;
+                default:
+                    return result >= 0;
+            }
+        }
+
+        private static boolean isEqual(Object actual, Object expected) {
+            if (actual == null || expected == null) {
+                return actual == expected;
+            }
+            if (actual instanceof Number && expected instanceof Number) {
+                return compareNumbers((Number) actual, (Number) expected) == 0;
+            }
+            if (actual instanceof Map || actual instanceof List) {
+                throw unsupported(actual);
+            }
+            return actual.equals(expected);
+        }
+
+        // like groovy, floating point numbers are compared as double, all others exactly
+        private static int compareNumbers(Number actual, Number expected) {
+            if (isFloatingPoint(actual) || isFloatingPoint(expected)) {
+                return Double.compare(actual.doubleValue(), expected.doubleValue());
+            }
+            return toBigDecimal(actual).compareTo(toBigDecimal(expected));
+        }
+
+        private static boolean isFloatingPoint(Number number) {
+            return number instanceof Float || number instanceof Double;
+        }
+
+        private static BigDecimal toBigDecimal(Number number) {
+            if (number instanceof BigDecimal) {
+                return (BigDecimal) number;
+            }
+            if (number instanceof BigInteger) {
+                return new BigDecimal((BigInteger) number);
+            }
+            return BigDecimal.valueOf(number.longValue());
+        }
+    }
+
+    private static UnsupportedOperationException unsupported(Object value) {
+        return new UnsupportedOperationException("cannot evaluate path on " + (value == null ? "null" : value.getClass().getSimpleName()));
+    }
+
+    /**
+     * Parses an expression into its steps. Any expression that is not fully understood results in an empty
+     * {@link Optional}.
+     */
+    private static final class Parser {
+        private final String expression;
+        private int position;
+
+        Parser(String expression) {
+            this.expression = expression;
+        }
+
+        Optional<List<Step>> parse() {
+            try {
+                List<Step> steps = new ArrayList<>();
+                if (expression.isBlank()) {
+                    return Optional.of(steps);
+                }
+                parseSegment(steps, true);
+                while (position < expression.length()) {
+                    expect('.');
+                    parseSegment(steps, true);
+                }
+                return Optional.of(steps);
+            } catch (IllegalArgumentException e) {
+                return Optional.empty();
+            }
+        }
+
+        private void parseSegment(List<Step> steps, boolean filterAllowed) {
+            skipWhitespace();
+            if (peek() == '\'' || peek() == '"') {
+                steps.add(new Property(quoted()));
+            } else if (peek() != '[') {
+                String name = identifier();
+                skipWhitespace();
+                if (filterAllowed && ("find".equals(name) || "findAll".equals(name)) && peek() == '{') {
+                    steps.add(new Find(filter(), "findAll".equals(name)));
+                } else if ("size".equals(name) && expression.startsWith("()", position)) {
+                    position += 2;
+                    steps.add(new Size());
+                } else {
+                    steps.add(new Property(name));
+                }
+            }
+            skipWhitespace();
+            while (peek() == '[') {
+                position++;
+                steps.add(new Index(integer()));
+                expect(']');
+                skipWhitespace();
+            }
+            if (steps.isEmpty()) {
+                throw new IllegalArgumentException("empty segment");
+            }
+        }
+
+        private List<Comparison> filter() {
+            expect('{');
+            List<Comparison> conditions = new ArrayList<>();
+            do {
+                conditions.add(comparison());
+                skipWhitespace();
+            } while (consume("&&"));
+            expect('}');
+            skipWhitespace();
+            return conditions;
+        }
+
+        private Comparison comparison() {
+            skipWhitespace();
+            if (!"it".equals(identifier())) {
+                throw new IllegalArgumentException("filter must start with it");
+            }
+            List<Step> left = new ArrayList<>();
+            while (peek() == '.' || peek() == '[') {
+                if (peek() == '.') {
+                    position++;
+                }
+                parseSegment(left, false);
+            }
+            skipWhitespace();
+            String operator = operator();
+            skipWhitespace();
+            return new Comparison(left, operator, literal());
+        }
+
+        private String operator() {
+            for (String operator : List.of("==", "!=", "<=", ">=", "<", ">")) {
+                if (consume(operator)) {
+                    return operator;
+                }
+            }
+            throw new IllegalArgumentException("unknown operator at " + position);
+        }
+
+        private Object literal() {
+            char c = peek();
+            if (c == '\'' || c == '"') {
+                return quoted();
+            }
+            if (c == '-' || Character.isDigit(c)) {
+                return number();
+            }
+            String word = identifier();
+            switch (word) {
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                case "null":
+                    return null;
+                default:
+                    throw new IllegalArgumentException("unknown literal " + word);
+            }
+        }
+
+        // number literals are typed like in groovy: Integer, Long, BigInteger or BigDecimal
+        private Object number() {
+            int start = position;
+            if (peek() == '-') {
+                position++;
+            }
+            while (Character.isDigit(peek()) || peek() == '.') {
+                position++;
+            }
+            String number = expression.substring(start, position);
+            if (number.contains(".")) {
+                return new BigDecimal(number);
+            }
+            BigInteger value = new BigInteger(number);
+            if (value.bitLength() < 32) {
+                return value.intValue();
+            }
+            return value.bitLength() < 64 ? (Object) value.longValue() : value;
+        }
+
+        private int integer() {
+            int start = position;
+            while (Character.isDigit(peek())) {
+                position++;
+            }
+            if (start == position) {
+                throw new IllegalArgumentException("index expected at " + position);
+            }
+            return Integer.parseInt(expression.substring(start, position));
+        }
+
+        private String identifier() {
+            int start = position;
+            while (Character.isLetterOrDigit(peek()) || peek() == '_' || peek() == '$') {
+                position++;
+            }
+            if (start == position) {
+                throw new IllegalArgumentException("name expected at " + position);
+            }
+            return expression.substring(start, position);
+        }
+
+        private String quoted() {
+            char quote = expression.charAt(position++);
+            int end = expression.indexOf(quote, position);
+            if (end < 0) {
+                throw new IllegalArgumentException("unterminated quote");
+            }
+            String value = expression.substring(position, end);
+            if (value.indexOf('\\') >= 0 || value.indexOf('$') >= 0) {
+                throw new IllegalArgumentException("escapes and interpolation are not supported");
+            }
+            position = end + 1;
+            return value;
+        }
+
+        private boolean consume(String token) {
+            if (expression.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("expected " + c + " at " + position);
+            }
+            position++;
+        }
+
+        private void skipWhitespace() {
+            while (Character.isWhitespace(peek())) {
+                position++;
+            }
+        }
+
+        private char peek() {
+            return position < expression.length() ? expression.charAt(position) : '\0';
+        }
+    }
+}
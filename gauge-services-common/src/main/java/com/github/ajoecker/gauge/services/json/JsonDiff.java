@@ -0,0 +1,408 @@
+package com.github.ajoecker.gauge.services.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares two json documents structurally in a single pass with pull parsers, without building the documents.
+ * <p>
+ * Both documents are walked in parallel. Objects are compared by the names of their members, arrays by the order of
+ * their elements and numbers by their value, so that <code>1</code> equals <code>1.0</code>. Only if the members of
+ * two objects are in a different order, the rest of both objects is built to compare them by name. The comparison stops
+ * as soon as the maximal number of differences is found, each reported with its path, like
+ * <code>$.data.artists[3].name: expected "Banksy", but was "Picasso"</code>.
+ * <p>
+ * Paths can be ignored and arrays can be compared regardless of the order of their elements. Both are given as paths
+ * like <code>data.artists[*].id</code>, in which <code>*</code> matches any member and <code>[*]</code> any index. An
+ * unordered array is built to match each expected element with an equal actual one.
+ */
+public final class JsonDiff {
+    private static final Pattern SEGMENT = Pattern.compile("\\[(\\*|\\d+)]|([^.\\[\\]]+)");
+    private static final Object ANY_NAME = new Object();
+    private static final Object ANY_INDEX = new Object();
+    private static final int MAX_DESCRIBED = 100;
+
+    private final int maxDifferences;
+    private final List<List<Object>> ignored = new ArrayList<>();
+    private final List<List<Object>> unordered = new ArrayList<>();
+
+    /**
+     * Creates a comparison.
+     *
+     * @param maxDifferences the number of differences, after which the comparison stops
+     * @param ignored        the paths, whose values are not compared
+     * @param unordered      the paths of arrays, whose elements are compared regardless of their order
+     */
+    public JsonDiff(int maxDifferences, Collection<String> ignored, Collection<String> unordered) {
+        if (maxDifferences < 1) {
+            throw new IllegalArgumentException("invalid maximal number of differences " + maxDifferences);
+        }
+        this.maxDifferences = maxDifferences;
+        ignored.forEach(path -> this.ignored.add(pattern(path)));
+        unordered.forEach(path -> this.unordered.add(pattern(path)));
+    }
+
+    // the segments of a path, either a name, an index, ANY_NAME or ANY_INDEX
+    private static List<Object> pattern(String path) {
+        String trimmed = path.trim();
+        if (trimmed.startsWith("$")) {
+            trimmed = trimmed.substring(1);
+        }
+        List<Object> segments = new ArrayList<>();
+        Matcher matcher = SEGMENT.matcher(trimmed);
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                segments.add("*".equals(matcher.group(1)) ? ANY_INDEX : (Object) Integer.parseInt(matcher.group(1)));
+            } else {
+                segments.add("*".equals(matcher.group(2)) ? ANY_NAME : matcher.group(2));
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Compares the given documents.
+     *
+     * @param expected the expected document
+     * @param actual   the actual document
+     * @return the differences, at most the maximal number of differences, empty if both documents are equal
+     * @throws IllegalArgumentException if a document is no json
+     */
+    public List<String> compare(Reader expected, Reader actual) {
+        Comparison comparison = new Comparison();
+        try (JsonReader expectedReader = new JsonReader(expected); JsonReader actualReader = new JsonReader(actual)) {
+            // like JsonParser, which was used before
+            expectedReader.setLenient(true);
+            actualReader.setLenient(true);
+            comparison.stream(expectedReader, actualReader);
+        } catch (Stop stop) {
+            // the maximal number of differences is found
+        } catch (JsonParseException | IllegalStateException | MalformedJsonException | EOFException e) {
+            throw new IllegalArgumentException("no json document: " + e.getMessage(), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return comparison.differences;
+    }
+
+    /**
+     * Returns the maximal number of differences, after which a comparison stops.
+     *
+     * @return the maximal number of differences
+     */
+    public int maxDifferences() {
+        return maxDifferences;
+    }
+
+    private static boolean matches(List<List<Object>> patterns, List<Object> path) {
+        for (List<Object> pattern : patterns) {
+            if (pattern.size() == path.size() && matchesPattern(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesPattern(List<Object> pattern, List<Object> path) {
+        for (int i = 0; i < pattern.size(); i++) {
+            Object segment = pattern.get(i);
+            Object key = path.get(i);
+            boolean match = segment == ANY_NAME ? key instanceof String : segment == ANY_INDEX ? key instanceof Integer : segment.equals(key);
+            if (!match) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String describe(JsonElement element) {
+        String json = element.toString();
+        return json.length() > MAX_DESCRIBED ? json.substring(0, MAX_DESCRIBED) + "..." : json;
+    }
+
+    private static String kind(JsonToken token) {
+        switch (token) {
+            case BEGIN_OBJECT:
+                return "an object";
+            case BEGIN_ARRAY:
+                return "an array";
+            default:
+                return "a " + token.toString().toLowerCase();
+        }
+    }
+
+    private static boolean isContainer(JsonToken token) {
+        return token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY;
+    }
+
+    private static boolean primitiveEquals(JsonElement expected, JsonElement actual) {
+        if (expected.isJsonNull() || actual.isJsonNull()) {
+            return expected.isJsonNull() && actual.isJsonNull();
+        }
+        if (expected.getAsJsonPrimitive().isNumber() && actual.getAsJsonPrimitive().isNumber()) {
+            return new BigDecimal(expected.getAsString()).compareTo(new BigDecimal(actual.getAsString())) == 0;
+        }
+        return expected.equals(actual);
+    }
+
+    private final class Comparison {
+        private final List<String> differences = new ArrayList<>();
+        // the names and indexes of the current value
+        private final List<Object> path = new ArrayList<>();
+
+        void stream(JsonReader expected, JsonReader actual) throws IOException {
+            if (isIgnored()) {
+                expected.skipValue();
+                actual.skipValue();
+                return;
+            }
+            JsonToken expectedToken = expected.peek();
+            JsonToken actualToken = actual.peek();
+            if (expectedToken == JsonToken.BEGIN_OBJECT && actualToken == JsonToken.BEGIN_OBJECT) {
+                streamObject(expected, actual);
+            } else if (expectedToken == JsonToken.BEGIN_ARRAY && actualToken == JsonToken.BEGIN_ARRAY) {
+                if (matches(unordered, path)) {
+                    compare(parse(expected), parse(actual), true);
+                } else {
+                    streamArray(expected, actual);
+                }
+            } else if (isContainer(expectedToken) || isContainer(actualToken)) {
+                expected.skipValue();
+                actual.skipValue();
+                difference("expected " + kind(expectedToken) + ", but was " + kind(actualToken));
+            } else {
+                compare(parse(expected), parse(actual), true);
+            }
+        }
+
+        private void streamObject(JsonReader expected, JsonReader actual) throws IOException {
+            expected.beginObject();
+            actual.beginObject();
+            while (expected.hasNext() && actual.hasNext()) {
+                String expectedName = expected.nextName();
+                String actualName = actual.nextName();
+                if (!expectedName.equals(actualName)) {
+                    // the members differ or are in a different order, so the rest is compared by name
+                    compare(rest(expected, expectedName), rest(actual, actualName), true);
+                    break;
+                }
+                path.add(expectedName);
+                stream(expected, actual);
+                path.remove(path.size() - 1);
+            }
+            while (expected.hasNext()) {
+                path.add(expected.nextName());
+                expected.skipValue();
+                missing(true);
+                path.remove(path.size() - 1);
+            }
+            while (actual.hasNext()) {
+                path.add(actual.nextName());
+                actual.skipValue();
+                unexpected(true);
+                path.remove(path.size() - 1);
+            }
+            expected.endObject();
+            actual.endObject();
+        }
+
+        // the rest of an object, starting with the value of the given name
+        private JsonObject rest(JsonReader reader, String name) throws IOException {
+            JsonObject rest = new JsonObject();
+            rest.add(name, parse(reader));
+            while (reader.hasNext()) {
+                rest.add(reader.nextName(), parse(reader));
+            }
+            return rest;
+        }
+
+        private void streamArray(JsonReader expected, JsonReader actual) throws IOException {
+            expected.beginArray();
+            actual.beginArray();
+            int index = 0;
+            while (expected.hasNext() && actual.hasNext()) {
+                path.add(index++);
+                stream(expected, actual);
+                path.remove(path.size() - 1);
+            }
+            int expectedSize = index;
+            int actualSize = index;
+            for (; expected.hasNext(); expectedSize++) {
+                expected.skipValue();
+            }
+            for (; actual.hasNext(); actualSize++) {
+                actual.skipValue();
+            }
+            expected.endArray();
+            actual.endArray();
+            if (expectedSize != actualSize) {
+                difference("expected " + expectedSize + " elements, but was " + actualSize);
+            }
+        }
+
+        private JsonElement parse(JsonReader reader) {
+            return new JsonParser().parse(reader);
+        }
+
+        /**
+         * Compares the given built values.
+         *
+         * @param record whether the differences are recorded or the comparison stops at the first difference
+         * @return <code>true</code> if both values are equal
+         */
+        private boolean compare(JsonElement expected, JsonElement actual, boolean record) {
+            if (isIgnored()) {
+                return true;
+            }
+            if (expected.isJsonObject() && actual.isJsonObject()) {
+                return compareObjects(expected.getAsJsonObject(), actual.getAsJsonObject(), record);
+            }
+            if (expected.isJsonArray() && actual.isJsonArray()) {
+                return matches(unordered, path)
+                        ? compareUnordered(expected.getAsJsonArray(), actual.getAsJsonArray(), record)
+                        : compareArrays(expected.getAsJsonArray(), actual.getAsJsonArray(), record);
+            }
+            if ((expected.isJsonPrimitive() || expected.isJsonNull()) && (actual.isJsonPrimitive() || actual.isJsonNull())
+                    && primitiveEquals(expected, actual)) {
+                return true;
+            }
+            return differ(record, "expected " + describe(expected) + ", but was " + describe(actual));
+        }
+
+        private boolean compareObjects(JsonObject expected, JsonObject actual, boolean record) {
+            boolean equal = true;
+            for (Map.Entry<String, JsonElement> member : expected.entrySet()) {
+                path.add(member.getKey());
+                JsonElement other = actual.get(member.getKey());
+                equal &= other == null ? missing(record) : compare(member.getValue(), other, record);
+                path.remove(path.size() - 1);
+                if (!equal && !record) {
+                    return false;
+                }
+            }
+            for (Map.Entry<String, JsonElement> member : actual.entrySet()) {
+                if (!expected.has(member.getKey())) {
+                    path.add(member.getKey());
+                    equal &= unexpected(record);
+                    path.remove(path.size() - 1);
+                    if (!equal && !record) {
+                        return false;
+                    }
+                }
+            }
+            return equal;
+        }
+
+        private boolean compareArrays(JsonArray expected, JsonArray actual, boolean record) {
+            boolean equal = true;
+            for (int i = 0; i < Math.min(expected.size(), actual.size()); i++) {
+                path.add(i);
+                equal &= compare(expected.get(i), actual.get(i), record);
+                path.remove(path.size() - 1);
+                if (!equal && !record) {
+                    return false;
+                }
+            }
+            if (expected.size() != actual.size()) {
+                equal = differ(record, "expected " + expected.size() + " elements, but was " + actual.size());
+            }
+            return equal;
+        }
+
+        // each expected element must match another actual element, paths of elements are their expected index
+        private boolean compareUnordered(JsonArray expected, JsonArray actual, boolean record) {
+            boolean equal = true;
+            Map<Integer, JsonElement> remaining = new LinkedHashMap<>();
+            for (int i = 0; i < actual.size(); i++) {
+                remaining.put(i, actual.get(i));
+            }
+            for (int i = 0; i < expected.size(); i++) {
+                path.add(i);
+                Integer match = null;
+                for (Map.Entry<Integer, JsonElement> candidate : remaining.entrySet()) {
+                    if (compare(expected.get(i), candidate.getValue(), false)) {
+                        match = candidate.getKey();
+                        break;
+                    }
+                }
+                if (match == null) {
+                    equal = differ(record, "expected element " + describe(expected.get(i)) + " is not found");
+                } else {
+                    remaining.remove(match);
+                }
+                path.remove(path.size() - 1);
+                if (!equal && !record) {
+                    return false;
+                }
+            }
+            for (Map.Entry<Integer, JsonElement> unmatched : remaining.entrySet()) {
+                path.add(unmatched.getKey());
+                equal = differ(record, "unexpected element " + describe(unmatched.getValue()));
+                path.remove(path.size() - 1);
+                if (!record) {
+                    return false;
+                }
+            }
+            return equal;
+        }
+
+        private boolean missing(boolean record) {
+            return isIgnored() || differ(record, "is missing");
+        }
+
+        private boolean unexpected(boolean record) {
+            return isIgnored() || differ(record, "is unexpected");
+        }
+
+        private boolean isIgnored() {
+            return matches(ignored, path);
+        }
+
+        private boolean differ(boolean record, String message) {
+            if (record) {
+                difference(message);
+            }
+            return false;
+        }
+
+        private void difference(String message) {
+            StringBuilder formatted = new StringBuilder("$");
+            for (Object key : path) {
+                formatted.append(key instanceof Integer ? "[" + key + "]" : "." + key);
+            }
+            differences.add(formatted.append(": ").append(message).toString());
+            if (differences.size() >= maxDifferences) {
+                throw Stop.INSTANCE;
+            }
+        }
+    }
+
+    // stops the comparison as soon as the maximal number of differences is found, without a stack trace to fill in
+    private static final class Stop extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private static final Stop INSTANCE = new Stop();
+
+        private Stop() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.github.ajoecker.gauge.services.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Reads values from a json document in a single pass with a pull parser, without building the whole document.
+ * <p>
+ * Only the requested values are built (as {@link Map}s, {@link List}s and the same number types REST Assured uses),
+ * everything else is skipped. Reading stops as soon as all requested values are found, the rest of the document is
+ * not read at all.
+ * <p>
+ * Only paths of properties and indexes (see {@link CompiledPath#keys()}) can be streamed. A path that leads through
+ * a value that is not an object (for a property) or an array (for an index) is not found, so that the caller can
+ * evaluate it with the GPath semantics instead.
+ */
+public final class JsonStream {
+    private JsonStream() {
+    }
+
+    /**
+     * Reads the given paths from the given json.
+     *
+     * @param json  the json document
+     * @param paths the paths to read
+     * @return the found values by their path, paths that cannot be streamed or are not found are missing
+     */
+    public static Map<String, Object> read(InputStream json, Collection<String> paths) {
+        Node root = new Node();
+        int requested = 0;
+        for (String path : paths) {
+            Optional<List<Object>> keys = CompiledPath.compile(path).flatMap(CompiledPath::keys);
+            if (keys.isPresent()) {
+                root.add(keys.get(), path);
+                requested++;
+            }
+        }
+        Map<String, Object> found = new LinkedHashMap<>();
+        if (requested > 0) {
+            try (JsonReader reader = new JsonReader(new InputStreamReader(json, StandardCharsets.UTF_8))) {
+                new Capture(found, requested).visit(reader, root);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Returns the first element of the array at the given path that matches the given predicate. Only one element at
+     * a time is built.
+     *
+     * @param json      the json document
+     * @param path      the path to the array
+     * @param predicate the predicate an element must match
+     * @return the first matching element or an empty {@link Optional}, if none matches
+     * @throws UnsupportedOperationException if the path cannot be streamed or does not lead to an array
+     */
+    public static Optional<Object> findFirst(InputStream json, String path, Predicate<Object> predicate) {
+        List<Object> keys = CompiledPath.compile(path).flatMap(CompiledPath::keys)
+                .orElseThrow(() -> new UnsupportedOperationException("cannot stream " + path));
+        try (JsonReader reader = new JsonReader(new InputStreamReader(json, StandardCharsets.UTF_8))) {
+            if (!moveTo(reader, keys) || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                throw new UnsupportedOperationException(path + " is not an array");
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                Object element = value(reader);
+                if (predicate.test(element)) {
+                    return Optional.of(element);
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean moveTo(JsonReader reader, List<Object> keys) throws IOException {
+        for (Object key : keys) {
+            if (!(key instanceof String ? moveToProperty(reader, (String) key) : moveToIndex(reader, (Integer) key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean moveToProperty(JsonReader reader, String name) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return false;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (name.equals(reader.nextName())) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    private static boolean moveToIndex(JsonReader reader, int index) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+            return false;
+        }
+        reader.beginArray();
+        for (int i = 0; reader.hasNext(); i++) {
+            if (i == index) {
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
+    }
+
+    /**
+     * Builds the value at the current position of the reader.
+     */
+    private static Object value(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    map.put(reader.nextName(), value(reader));
+                }
+                reader.endObject();
+                return map;
+
+            case BEGIN_ARRAY:
+                List<Object> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    list.add(value(reader));
+                }
+                reader.endArray();
+                return list;
+
+            case STRING:
+                return reader.nextString();
+
+            case NUMBER:
+                return number(reader.nextString());
+
+            case BOOLEAN:
+                return reader.nextBoolean();
+
+            case NULL:
+                reader.nextNull();
+                return null;
+
+            default:
+                throw new IllegalStateException("unexpected " + reader.peek() + " at " + reader.getPath());
+        }
+    }
+
+    // numbers are typed like REST Assured does: Integer, Long or BigInteger and Float or Double
+    private static Object number(String number) {
+        if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+            BigInteger value = new BigInteger(number);
+            if (value.bitLength() < 32) {
+                return value.intValue();
+            }
+            return value.bitLength() < 64 ? (Object) value.longValue() : value;
+        }
+        BigDecimal value = new BigDecimal(number);
+        float floatValue = value.floatValue();
+        return Float.isInfinite(floatValue) ? (Object) value.doubleValue() : floatValue;
+    }
+
+    /**
+     * The requested paths as a tree of their keys.
+     */
+    private static final class Node {
+        private final Map<Object, Node> children = new HashMap<>();
+        private final List<String> paths = new ArrayList<>();
+
+        void add(List<Object> keys, String path) {
+            Node node = this;
+            for (Object key : keys) {
+                node = node.children.computeIfAbsent(key, k -> new Node());
+            }
+            node.paths.add(path);
+        }
+    }
+
+    private static final class Capture {
+        private final Map<String, Object> found;
+        private int missing;
+
+        Capture(Map<String, Object> found, int missing) {
+            this.found = found;
+            this.missing = missing;
+        }
+
+        /**
+         * Visits the value at the current position of the reader.
+         *
+         * @return <code>false</code> if all paths are found and reading can stop
+         */
+        boolean visit(JsonReader reader, Node node) throws IOException {
+            if (!node.paths.isEmpty()) {
+                Object value = value(reader);
+                for (String path : node.paths) {
+                    found.put(path, value);
+                    missing--;
+                }
+                for (Map.Entry<Object, Node> child : node.children.entrySet()) {
+                    if (!resolve(value, child.getKey(), child.getValue())) {
+                        return false;
+                    }
+                }
+                return missing > 0;
+            }
+            JsonToken token = reader.peek();
+            if (token == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    Node child = node.children.get(reader.nextName());
+                    if (child == null) {
+                        reader.skipValue();
+                    } else if (!visit(reader, child)) {
+                        return false;
+                    }
+                }
+                reader.endObject();
+            } else if (token == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                for (int i = 0; reader.hasNext(); i++) {
+                    Node child = node.children.get(i);
+                    if (child == null) {
+                        reader.skipValue();
+                    } else if (!visit(reader, child)) {
+                        return false;
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+            return true;
+        }
+
+        // paths below an already built value are looked up in that value
+        private boolean resolve(Object value, Object key, Node node) {
+            Object child;
+            if (key instanceof String && value instanceof Map && ((Map<?, ?>) value).containsKey(key)) {
+                child = ((Map<?, ?>) value).get(key);
+            } else if (key instanceof Integer && value instanceof List && (Integer) key < ((List<?>) value).size()) {
+                child = ((List<?>) value).get((Integer) key);
+            } else {
+                return true;
+            }
+            for (String path : node.paths) {
+                found.put(path, child);
+                missing--;
+            }
+            for (Map.Entry<Object, Node> grandChild : node.children.entrySet()) {
+                if (!resolve(child, grandChild.getKey(), grandChild.getValue())) {
+                    return false;
+                }
+            }
+            return missing > 0;
+        }
+    }
+}
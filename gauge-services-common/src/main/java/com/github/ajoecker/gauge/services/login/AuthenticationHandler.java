@@ -42,4 +42,12 @@ public interface AuthenticationHandler {
     default void loginWithToken(String token) {
         throw new IllegalCallerException("not implemented for " + this.getClass());
     }
+
+    /**
+     * Releases the login of the current thread at the end of a scenario, if configured via
+     * <code>gauge.service.isolation</code>.
+     */
+    default void release() {
+        // no login state by default
+    }
 }
@@ -1,6 +1,7 @@
 package com.github.ajoecker.gauge.services.login;
 
 import com.github.ajoecker.gauge.services.Connector;
+import com.github.ajoecker.gauge.services.Isolated;
 import com.github.ajoecker.gauge.services.VariableAccessor;
 import com.github.ajoecker.gauge.services.Sender;
 import com.google.common.base.Strings;
@@ -14,12 +15,22 @@ import org.tinylog.Logger;
  * <code>gauge.service.user</code> and <code>gauge.service.password</code>.
  */
 public final class BasicAuthentication implements AuthenticationHandler {
-    private String token;
-    private String user;
-    private String password;
+    private final Isolated<Login> login;
+
+    public BasicAuthentication() {
+        this(Isolated.Isolation.NONE);
+    }
+
+    public BasicAuthentication(Isolated.Isolation isolation) {
+        this.login = new Isolated<>(isolation, Login::new);
+    }
 
     @Override
     public void setLogin(RequestSpecification request) {
+        Login current = login.get();
+        String user = current.user;
+        String password = current.password;
+        String token = current.token;
         if (!Strings.isNullOrEmpty(user) && !Strings.isNullOrEmpty(password)) {
             Logger.info("logging in with {} and {}", user, password);
             request.auth().preemptive().basic(user, password);
@@ -32,20 +43,33 @@ public final class BasicAuthentication implements AuthenticationHandler {
 
     @Override
     public void loginWithUserPassword(String user, String password, Connector connector) {
-        this.user = user;
-        this.password = password;
+        Login current = login.get();
+        current.user = user;
+        current.password = password;
     }
 
     @Override
     public void loginWithToken(String token) {
-        this.token = token;
+        login.get().token = token;
     }
 
     @Override
     public void loginWithSystemCredentials(Sender sender) {
         VariableAccessor variableAccessor = sender.getVariableAccessor();
-        this.user = variableAccessor.user();
-        this.password = variableAccessor.password();
-        this.token = variableAccessor.token();
+        Login current = login.get();
+        current.user = variableAccessor.user();
+        current.password = variableAccessor.password();
+        current.token = variableAccessor.token();
+    }
+
+    @Override
+    public void release() {
+        login.release();
+    }
+
+    private static final class Login {
+        private String token;
+        private String user;
+        private String password;
     }
 }
@@ -1,10 +1,17 @@
 package com.github.ajoecker.gauge.services.login;
 
 import com.github.ajoecker.gauge.services.Connector;
+import com.github.ajoecker.gauge.services.Isolated;
+import com.github.ajoecker.gauge.services.VariableAccessor;
 import com.google.common.base.Strings;
 import io.restassured.specification.RequestSpecification;
 import org.tinylog.Logger;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
 /**
  * A {@link AuthenticationHandler} that works based on a token.
  * <p>
@@ -12,12 +19,37 @@ import org.tinylog.Logger;
  * <p>
  * Or the token can be dynamically queried, when the configurations <code>gauge.service.token.query</code> (the file
  * with the query to login) and <code>gauge.service.token.path</code> (the jsonpath to the token in the response) are given.
+ * Queried tokens are kept in a {@link TokenCache} by login query, so that the same login is only sent again shortly
+ * before its token expires. The login response is not set as latest response.
  */
 public final class TokenBasedAuthentication implements AuthenticationHandler {
-    private String loginToken;
+    // the current token, which is looked up with each request, so that a queried token is refreshed before it expires
+    private final Isolated<Supplier<String>> loginToken;
+    private final TokenCache tokenCache;
+    private final String expiresPath;
+
+    public TokenBasedAuthentication() {
+        this(Isolated.Isolation.NONE);
+    }
+
+    public TokenBasedAuthentication(Isolated.Isolation isolation) {
+        this(isolation, new VariableAccessor());
+    }
+
+    public TokenBasedAuthentication(Isolated.Isolation isolation, VariableAccessor variableAccessor) {
+        this(isolation, TokenCache.of(variableAccessor), variableAccessor.tokenExpiresPath());
+    }
+
+    TokenBasedAuthentication(Isolated.Isolation isolation, TokenCache tokenCache, String expiresPath) {
+        this.loginToken = new Isolated<>(isolation, () -> null);
+        this.tokenCache = tokenCache;
+        this.expiresPath = expiresPath;
+    }
 
     @Override
     public void setLogin(RequestSpecification request) {
+        Supplier<String> token = this.loginToken.get();
+        String loginToken = token == null ? null : token.get();
         if (!Strings.isNullOrEmpty(loginToken)) {
             Logger.info("set token for login: {}", loginToken);
             request.auth().preemptive().oauth2(loginToken);
@@ -26,13 +58,26 @@ public final class TokenBasedAuthentication implements AuthenticationHandler {
 
     @Override
     public void loginWithToken(String token) {
-        this.loginToken = token;
+        this.loginToken.set(() -> token);
     }
 
     @Override
     public void loginWithQuery(String query, String tokenPath, Connector connector) {
-        connector.post(query);
-        loginToken = connector.fromLatestResponse(tokenPath).map(Object::toString).orElse("");
-        Logger.info("saved token for login: {}", loginToken);
+        String login = connector.render(query);
+        String key = connector.endpoint() + "\n" + login;
+        Supplier<String> token = () -> tokenCache.token(key, () -> login(connector, login, tokenPath));
+        Logger.info("saved token for login: {}", token.get());
+        loginToken.set(token);
+    }
+
+    private TokenCache.Login login(Connector connector, String login, String tokenPath) {
+        List<String> paths = expiresPath == null ? List.of(tokenPath) : List.of(tokenPath, expiresPath);
+        Map<String, Object> values = connector.postAside(login, paths);
+        return new TokenCache.Login(Objects.toString(values.get(tokenPath), null), expiresPath == null ? null : values.get(expiresPath));
+    }
+
+    @Override
+    public void release() {
+        loginToken.release();
     }
 }
@@ -0,0 +1,217 @@
+package com.github.ajoecker.gauge.services.login;
+
+import com.github.ajoecker.gauge.services.Hashing;
+import com.github.ajoecker.gauge.services.VariableAccessor;
+import io.restassured.path.json.JsonPath;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches login tokens by a key, like the login query with its credentials, so that a login is only sent again shortly
+ * before its token expires.
+ * <p>
+ * The expiry is read from the claim <code>exp</code>, if the token is a JWT, or else from the number of seconds the
+ * login response states via <code>gauge.service.token.expires.path</code>. A token without expiry is kept for the
+ * whole run. A token is refreshed <code>gauge.service.token.refresh</code> seconds before it expires. While one thread
+ * refreshes a token, all other threads either keep using the token, as long as it has not expired, or wait for the
+ * refreshed one, so that only one login per key is sent at a time.
+ * <p>
+ * If <code>gauge.service.token.store</code> is given, tokens with an expiry are stored in this file, so that they
+ * survive between runs until they expire. The keys are only stored as hashes.
+ */
+public final class TokenCache {
+    private final long refresh;
+    private final Path store;
+    private final Clock clock;
+    private final Map<String, Token> tokens = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Token>> refreshing = new ConcurrentHashMap<>();
+
+    TokenCache(long refresh, Path store, Clock clock) {
+        if (refresh < 0) {
+            throw new IllegalArgumentException("invalid refresh of tokens " + refresh + " ms before their expiry");
+        }
+        this.refresh = refresh;
+        this.store = store;
+        this.clock = clock;
+        if (store != null) {
+            load();
+        }
+    }
+
+    /**
+     * Creates the cache that is configured in the given {@link VariableAccessor}.
+     *
+     * @param variableAccessor the configuration
+     * @return the configured cache
+     */
+    public static TokenCache of(VariableAccessor variableAccessor) {
+        return new TokenCache(variableAccessor.tokenRefresh() * 1_000, variableAccessor.tokenStore().map(Path::of).orElse(null),
+                Clock.systemUTC());
+    }
+
+    /**
+     * Returns the token of the given key, which is logged in via the given login, if there is no token yet or the
+     * token is about to expire.
+     *
+     * @param key   the key, like the login query with its credentials
+     * @param login sends the login
+     * @return the token
+     */
+    public String token(String key, Supplier<Login> login) {
+        String hash = Hashing.sha256(key);
+        Token cached = tokens.get(hash);
+        if (cached != null && !cached.expiresWithin(refresh, clock.millis())) {
+            return cached.value;
+        }
+        CompletableFuture<Token> refreshed = new CompletableFuture<>();
+        CompletableFuture<Token> running = refreshing.putIfAbsent(hash, refreshed);
+        if (running == null) {
+            return refresh(hash, login, refreshed).value;
+        }
+        if (cached != null && !cached.expiresWithin(0, clock.millis())) {
+            Logger.info("token is refreshed by another thread, using the current one");
+            return cached.value;
+        }
+        try {
+            return running.join().value;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private Token refresh(String hash, Supplier<Login> login, CompletableFuture<Token> refreshed) {
+        try {
+            // another thread may have finished its refresh right before this one started
+            Token token = tokens.get(hash);
+            if (token == null || token.expiresWithin(refresh, clock.millis())) {
+                token = token(login.get());
+                tokens.put(hash, token);
+                Logger.info("logged in with token expiring {}", token.expiresAt == Long.MAX_VALUE ? "never" : "at " + Instant.ofEpochMilli(token.expiresAt));
+                if (store != null && token.expiresAt != Long.MAX_VALUE) {
+                    save();
+                }
+            }
+            refreshed.complete(token);
+            return token;
+        } catch (RuntimeException e) {
+            refreshed.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshing.remove(hash, refreshed);
+        }
+    }
+
+    private Token token(Login login) {
+        if (login.token == null || login.token.isBlank()) {
+            throw new IllegalStateException("login response contains no token");
+        }
+        long now = clock.millis();
+        long expiresAt = jwtExpiry(login.token)
+                .or(() -> Optional.ofNullable(login.expiresIn).map(seconds -> now + (long) (Double.parseDouble(seconds.toString()) * 1_000)))
+                .orElse(Long.MAX_VALUE);
+        return new Token(login.token, expiresAt);
+    }
+
+    // the claim exp of a JWT in milliseconds
+    private static Optional<Long> jwtExpiry(String token) {
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) {
+            return Optional.empty();
+        }
+        try {
+            String claims = new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+            Object exp = JsonPath.from(claims).get("exp");
+            return exp instanceof Number ? Optional.of((long) (((Number) exp).doubleValue() * 1_000)) : Optional.empty();
+        } catch (RuntimeException e) {
+            Logger.info("token looks like a JWT, but has no readable claims: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(store)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(store, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            Logger.warn("cannot read tokens from {}: {}", store, e.getMessage());
+            return;
+        }
+        long now = clock.millis();
+        properties.stringPropertyNames().forEach(hash -> {
+            String[] stored = properties.getProperty(hash).split(" ", 2);
+            Token token = new Token(stored[1], Long.parseLong(stored[0]));
+            if (!token.expiresWithin(refresh, now)) {
+                tokens.put(hash, token);
+            }
+        });
+        Logger.info("read {} valid tokens from {}", tokens.size(), store);
+    }
+
+    private synchronized void save() {
+        Properties properties = new Properties();
+        long now = clock.millis();
+        tokens.forEach((hash, token) -> {
+            if (token.expiresAt != Long.MAX_VALUE && !token.expiresWithin(0, now)) {
+                properties.setProperty(hash, token.expiresAt + " " + token.value);
+            }
+        });
+        try {
+            Path parent = store.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path written = Files.createTempFile(parent, "tokens", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(written, StandardCharsets.UTF_8)) {
+                properties.store(writer, "gauge-services tokens");
+            }
+            Files.move(written, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Logger.warn("cannot store tokens in {}: {}", store, e.getMessage());
+        }
+    }
+
+    /**
+     * The token of a login response and the number of seconds until it expires, if the response states it.
+     */
+    public static final class Login {
+        private final String token;
+        private final Object expiresIn;
+
+        public Login(String token, Object expiresIn) {
+            this.token = token;
+            this.expiresIn = expiresIn;
+        }
+    }
+
+    private static final class Token {
+        private final String value;
+        private final long expiresAt;
+
+        private Token(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean expiresWithin(long millis, long now) {
+            return expiresAt != Long.MAX_VALUE && expiresAt - millis <= now;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.ajoecker.gauge.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BoundedCacheTest {
+    @Test
+    public void valueIsComputedOnce() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>();
+        AtomicInteger computed = new AtomicInteger();
+        assertThat(cache.get("banksy", key -> computed.incrementAndGet())).isEqualTo(1);
+        assertThat(cache.get("banksy", key -> computed.incrementAndGet())).isEqualTo(1);
+        assertThat(computed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void cacheIsClearedWhenFull() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(3);
+        for (int i = 0; i < 3; i++) {
+            cache.get(i, key -> key);
+        }
+        assertThat(cache.size()).isEqualTo(3);
+        cache.get(3, key -> key);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.ajoecker.gauge.services;
+
+import io.restassured.RestAssured;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.filter.FilterContext;
+import io.restassured.filter.OrderedFilter;
+import io.restassured.response.Response;
+import io.restassured.specification.FilterableRequestSpecification;
+import io.restassured.specification.FilterableResponseSpecification;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompressionTest {
+    private static final byte[] DATA = "{\"query\": \"{ popular_artists { artists { name } } }\"}".repeat(50).getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void gzipRoundTrip() {
+        byte[] encoded = Compression.encode(DATA, Compression.Encoding.GZIP);
+        assertThat(encoded.length).isLessThan(DATA.length);
+        assertThat(Compression.decode(encoded, "gzip")).isEqualTo(DATA);
+    }
+
+    @Test
+    public void deflateRoundTrip() {
+        byte[] encoded = Compression.encode(DATA, Compression.Encoding.DEFLATE);
+        assertThat(encoded.length).isLessThan(DATA.length);
+        assertThat(Compression.decode(encoded, "deflate")).isEqualTo(DATA);
+    }
+
+    @Test
+    public void rawDeflateIsDecoded() throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(raw, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+            out.write(DATA);
+        }
+        assertThat(Compression.decode(raw.toByteArray(), "deflate")).isEqualTo(DATA);
+    }
+
+    @Test
+    public void uncompressedDataIsUnchanged() {
+        assertThat(Compression.decode(DATA, null)).isSameAs(DATA);
+        assertThat(Compression.decode(DATA, "identity")).isSameAs(DATA);
+    }
+
+    @Test
+    public void unknownEncodingIsKeptAsReceived() {
+        assertThat(Compression.decode(DATA, "br")).isSameAs(DATA);
+        assertThat(Compression.decode(DATA, "zstd")).isSameAs(DATA);
+    }
+
+    @Test
+    public void listOfEncodingsIsDecoded() {
+        byte[] gzipped = Compression.encode(DATA, Compression.Encoding.GZIP);
+        assertThat(Compression.decode(gzipped, "gzip, identity")).isEqualTo(DATA);
+        byte[] both = Compression.encode(Compression.encode(DATA, Compression.Encoding.DEFLATE), Compression.Encoding.GZIP);
+        assertThat(Compression.decode(both, "deflate, gzip")).isEqualTo(DATA);
+    }
+
+    // sends the data through the compression and returns the request as it would be sent over the network
+    private static FilterableRequestSpecification send(Compression compression) {
+        AtomicReference<FilterableRequestSpecification> sent = new AtomicReference<>();
+        RestAssured.given()
+                .filter(compression)
+                .filter(new OrderedFilter() {
+                    @Override
+                    public Response filter(FilterableRequestSpecification requestSpec, FilterableResponseSpecification responseSpec, FilterContext ctx) {
+                        sent.set(requestSpec);
+                        return new ResponseBuilder().setStatusCode(200).setBody("{}").build();
+                    }
+
+                    @Override
+                    public int getOrder() {
+                        return LOWEST_PRECEDENCE;
+                    }
+                })
+                .body(DATA)
+                .post("http://localhost/graphql");
+        return sent.get();
+    }
+
+    @Test
+    public void requestBodyIsCompressed() {
+        Compression compression = new Compression(Compression.Encoding.GZIP, 100);
+        FilterableRequestSpecification sent = send(compression);
+
+        assertThat(sent.getHeaders().getValue("Content-Encoding")).isEqualTo("gzip");
+        byte[] body = sent.getBody();
+        assertThat(body.length).isLessThan(DATA.length);
+        assertThat(Compression.decode(body, "gzip")).isEqualTo(DATA);
+        assertThat(compression.summary()).startsWith("compression: 1 requests, sent " + DATA.length + " bytes as " + body.length + " bytes");
+    }
+
+    @Test
+    public void smallRequestBodyIsNotCompressed() {
+        Compression compression = new Compression(Compression.Encoding.GZIP, DATA.length + 1);
+        FilterableRequestSpecification sent = send(compression);
+
+        assertThat(sent.getHeaders().hasHeaderWithName("Content-Encoding")).isFalse();
+        assertThat((byte[]) sent.getBody()).isEqualTo(DATA);
+        assertThat(compression.summary()).startsWith("compression: 1 requests");
+    }
+
+    @Test
+    public void encodings() {
+        assertThat(Compression.encodings("gzip, deflate")).isEqualTo(List.of(Compression.Encoding.GZIP, Compression.Encoding.DEFLATE));
+        assertThat(Compression.encodings("none")).isEmpty();
+    }
+
+    @Test
+    public void unknownEncodingListsValidEncodings() {
+        assertThat(Compression.encodings("GZip")).isEqualTo(List.of(Compression.Encoding.GZIP));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Compression.encodings("gzip, deflate, br"));
+        assertThat(e.getMessage()).isEqualTo("unknown encoding 'br', valid are none, gzip, deflate");
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.ajoecker.gauge.services;
+
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConnectionPoolTest {
+    private HttpServer server;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "{\"name\": \"Banksy\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        pool = new ConnectionPool(new VariableAccessor() {
+            @Override
+            public int poolMaxTotal() {
+                return 7;
+            }
+
+            @Override
+            public int poolMaxPerRoute() {
+                return 3;
+            }
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        pool.shutdown();
+        server.stop(0);
+    }
+
+    private String get() {
+        return pool.prepare(RestAssured.given()).get("http://127.0.0.1:" + server.getAddress().getPort() + "/").asString();
+    }
+
+    @Test
+    public void sizeOfPoolIsConfigured() {
+        get();
+        assertThat(pool.statistics().max()).isEqualTo(7);
+    }
+
+    @Test
+    public void connectionIsReused() {
+        for (int i = 0; i < 3; i++) {
+            assertThat(get()).isEqualTo("{\"name\": \"Banksy\"}");
+        }
+        ConnectionPool.PoolStatistics statistics = pool.statistics();
+        assertThat(statistics.requests()).isEqualTo(3);
+        assertThat(statistics.opened()).isEqualTo(1);
+        assertThat(statistics.reused()).isEqualTo(2);
+        assertThat(statistics.leased()).isZero();
+    }
+
+    @Test
+    public void emptyPoolBeforeFirstRequest() {
+        assertThat(pool.statistics().requests()).isZero();
+        assertThat(pool.statistics().max()).isZero();
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.ajoecker.gauge.services;
+
+import com.sun.net.httpserver.HttpServer;
+import io.restassured.RestAssured;
+import io.restassured.builder.ResponseBuilder;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpClientTransportTest {
+    private HttpServer server;
+    private final AtomicReference<String> received = new AtomicReference<>();
+
+    @BeforeEach
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            received.set(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " "
+                    + exchange.getRequestHeaders().getFirst("X-Artist") + " "
+                    + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = "{\"name\": \"Banksy\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if ("gzip".equals(exchange.getRequestHeaders().getFirst("Accept-Encoding"))) {
+                body = Compression.encode(body, Compression.Encoding.GZIP);
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            }
+            exchange.sendResponseHeaders(201, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void after() {
+        server.stop(0);
+    }
+
+    private String uri(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    public void requestIsConverted() {
+        AtomicReference<HttpRequest> request = new AtomicReference<>();
+        RestAssured.given()
+                .header("X-Artist", "Banksy")
+                .contentType("application/json")
+                .body("{\"name\": \"Banksy\"}")
+                .filter((requestSpec, responseSpec, ctx) -> {
+                    request.set(HttpClientTransport.toHttpRequest(requestSpec).build());
+                    return new ResponseBuilder().setStatusCode(200).setBody("").build();
+                })
+                .post(uri("/artists?sort=name"));
+
+        HttpRequest converted = request.get();
+        assertThat(converted.method()).isEqualTo("POST");
+        assertThat(converted.uri()).isEqualTo(URI.create(uri("/artists?sort=name")));
+        assertThat(converted.headers().firstValue("X-Artist")).contains("Banksy");
+        assertThat(converted.headers().firstValue("Content-Type").orElse("")).startsWith("application/json");
+        assertThat(converted.bodyPublisher().orElseThrow().contentLength()).isEqualTo(18);
+    }
+
+    @Test
+    public void requestIsSentByJdkClient() {
+        Transport transport = new HttpClientTransport(HttpClient.Version.HTTP_1_1, List.of());
+        Response response = transport.prepare(RestAssured.given())
+                .header("X-Artist", "Banksy")
+                .body("{\"name\": \"Banksy\"}")
+                .post(uri("/artists"));
+
+        assertThat(received.get()).isEqualTo("POST /artists Banksy {\"name\": \"Banksy\"}");
+        assertThat(response.statusCode()).isEqualTo(201);
+        assertThat(response.statusLine()).isEqualTo("HTTP/1.1 201");
+        assertThat(response.jsonPath().getString("name")).isEqualTo("Banksy");
+        assertThat(transport.summary()).isEqualTo("java.net.http client responses: HTTP_1_1: 1");
+    }
+
+    @Test
+    public void decodedResponseHasNoEncoding() {
+        Transport transport = new HttpClientTransport(HttpClient.Version.HTTP_1_1, List.of(Compression.Encoding.GZIP));
+        Response response = transport.prepare(RestAssured.given()).get(uri("/artists"));
+
+        assertThat(response.asString()).isEqualTo("{\"name\": \"Banksy\"}");
+        assertThat(response.headers().hasHeaderWithName("Content-Encoding")).isFalse();
+        assertThat(response.headers().hasHeaderWithName("Content-Length")).isFalse();
+        assertThat(response.contentType()).isEqualTo("application/json");
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.ajoecker.gauge.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IsolatedTest {
+    private static <T> T inOtherThread(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task).join();
+    }
+
+    @Test
+    public void valueIsSharedWithoutIsolation() {
+        Isolated<String> value = new Isolated<>(Isolated.Isolation.NONE, () -> "initial");
+        inOtherThread(() -> {
+            value.set("other");
+            return null;
+        });
+        assertThat(value.get()).isEqualTo("other");
+        value.release();
+        assertThat(value.get()).isEqualTo("other");
+    }
+
+    @Test
+    public void valueIsHeldPerThread() {
+        Isolated<String> value = new Isolated<>(Isolated.Isolation.THREAD, () -> "initial");
+        value.set("this");
+        assertThat(inOtherThread(value::get)).isEqualTo("initial");
+        inOtherThread(() -> {
+            value.set("other");
+            return null;
+        });
+        assertThat(value.get()).isEqualTo("this");
+        value.release();
+        assertThat(value.get()).isEqualTo("this");
+    }
+
+    @Test
+    public void valueIsResetAtEndOfScenario() {
+        Isolated<String> value = new Isolated<>(Isolated.Isolation.SCENARIO, () -> "initial");
+        value.set("this");
+        value.release();
+        assertThat(value.get()).isEqualTo("initial");
+    }
+
+    @Test
+    public void taskSeesValuesOfCallingThread() {
+        Isolated<String> value = new Isolated<>(Isolated.Isolation.THREAD, () -> "initial");
+        value.set("this");
+        assertThat(inOtherThread(Isolated.inCurrentContext(value::get))).isEqualTo("this");
+    }
+}
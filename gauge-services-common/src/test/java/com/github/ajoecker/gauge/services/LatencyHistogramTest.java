@@ -0,0 +1,49 @@
+package com.github.ajoecker.gauge.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LatencyHistogramTest {
+    @Test
+    public void percentilesAreWithinThePrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis * 1_000_000);
+        }
+        assertThat(histogram.count()).isEqualTo(1000);
+        assertThat(histogram.min()).isEqualTo(1.0);
+        assertThat(histogram.max()).isEqualTo(1000.0);
+        assertThat(histogram.mean()).isEqualTo(500.5);
+        assertThat(histogram.percentile(50)).isCloseTo(500, within(500 / 64.0));
+        assertThat(histogram.percentile(95)).isCloseTo(950, within(950 / 64.0));
+        assertThat(histogram.percentile(99.9)).isCloseTo(999, within(999 / 64.0));
+        assertThat(histogram.percentile(100)).isEqualTo(1000.0);
+    }
+
+    @Test
+    public void smallLatenciesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(100);
+        assertThat(histogram.percentile(50)).isEqualTo(0.0);
+        assertThat(histogram.percentile(100)).isEqualTo(0.0001);
+    }
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.percentile(99)).isEqualTo(-1);
+        assertThat(histogram.max()).isEqualTo(-1);
+        assertThat(histogram).hasToString("no latencies");
+    }
+
+    @Test
+    public void invalidValuesAreRejected() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThrows(IllegalArgumentException.class, () -> histogram.record(-1));
+        assertThrows(IllegalArgumentException.class, () -> histogram.percentile(101));
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.ajoecker.gauge.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PollerTest {
+    private final Poller poller = new Poller(1, 2, 10);
+
+    @Test
+    public void conditionHoldingAtOnceIsNotRepeated() {
+        AtomicInteger requests = new AtomicInteger();
+        Poller.Result result = poller.until(() -> {
+        }, requests::incrementAndGet, 1000);
+        assertThat(result.attempts()).isEqualTo(1);
+        assertThat(requests.get()).isZero();
+    }
+
+    @Test
+    public void requestIsRepeatedUntilConditionHolds() {
+        AtomicInteger requests = new AtomicInteger();
+        Poller.Result result = poller.until(() -> assertThat(requests.get()).isEqualTo(3), requests::incrementAndGet, 5000);
+        assertThat(result.attempts()).isEqualTo(4);
+        assertThat(requests.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void lastErrorIsReportedAfterTimeout() {
+        AssertionError error = assertThrows(AssertionError.class, () -> poller.until(() -> {
+            throw new AssertionError("still running");
+        }, () -> {
+        }, 50));
+        assertThat(error).hasMessageStartingWith("condition does not hold after").hasMessageEndingWith("still running");
+    }
+
+    @Test
+    public void invalidIntervalsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new Poller(0, 2, 10));
+        assertThrows(IllegalArgumentException.class, () -> new Poller(10, 0.5, 10));
+        assertThrows(IllegalArgumentException.class, () -> new Poller(10, 2, 5));
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.ajoecker.gauge.services;
+
+import com.github.ajoecker.gauge.services.login.BasicAuthentication;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RegistryTest {
+    @Test
+    public void releaseReleasesAllConnectors() {
+        AtomicInteger released = new AtomicInteger();
+        Sender sender = new Sender(new VariableAccessor());
+        Connector connector = new Connector(new TestVariableStorage(), sender) {
+            @Override
+            public void release() {
+                released.incrementAndGet();
+            }
+        };
+        Registry.get().init("released", sender, connector, new BasicAuthentication());
+        Registry.get().init("active", sender, new Connector(new TestVariableStorage(), sender), new BasicAuthentication());
+        Registry.get().release();
+        assertThat(released.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void connectorIsFoundByType() {
+        Sender sender = new Sender(new VariableAccessor());
+        Connector connector = new Connector(new TestVariableStorage(), sender);
+        Registry.get().init("found", sender, connector, new BasicAuthentication());
+        Registry.get().init("other", sender, new Connector(new TestVariableStorage(), sender), new BasicAuthentication());
+        assertThat(Registry.get().connector("found")).containsSame(connector);
+        assertThat(Registry.get().connector("unknown")).isEmpty();
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.ajoecker.gauge.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResponseDocumentTest {
+    private static final String JSON = "{\"data\": {\"artists\": ["
+            + "{\"id\": \"1\", \"name\": \"Banksy\", \"nationality\": \"British\", \"age\": 45},"
+            + "{\"id\": \"2\", \"name\": \"Pablo Picasso\", \"nationality\": \"Spanish\"},"
+            + "{\"id\": \"3\", \"name\": \"Damien Hirst\", \"nationality\": \"British\"},"
+            + "\"unknown\"]}}";
+
+    private static Object id(Object artist) {
+        return ((Map<?, ?>) artist).get("id");
+    }
+
+    @Test
+    public void firstElementWithAttributesIsFound() {
+        ResponseDocument document = ResponseDocument.of(JSON);
+        assertThat(document.findFirstWhere("data.artists", Map.of("nationality", "British")))
+                .map(ResponseDocumentTest::id).contains("1");
+        assertThat(document.findFirstWhere("data.artists", Map.of("nationality", "British", "name", "Damien Hirst")))
+                .map(ResponseDocumentTest::id).contains("3");
+        assertThat(document.findFirstWhere("data.artists", Map.of("name", "Pablo Picasso")))
+                .map(ResponseDocumentTest::id).contains("2");
+    }
+
+    @Test
+    public void nothingIsFoundWithoutMatch() {
+        ResponseDocument document = ResponseDocument.of(JSON);
+        assertThat(document.findFirstWhere("data.artists", Map.of("nationality", "German"))).isEmpty();
+        assertThat(document.findFirstWhere("data.artists", Map.of("age", "45"))).isEmpty();
+        assertThat(document.findFirstWhere("data.artists", Map.of("missing", "British"))).isEmpty();
+        assertThat(document.findFirstWhere("data", Map.of("nationality", "British"))).isEmpty();
+    }
+
+    @Test
+    public void indexIsBuiltOncePerAttributes() {
+        ResponseDocument document = ResponseDocument.of(JSON);
+        Optional<Object> first = document.findFirstWhere("data.artists", Map.of("nationality", "Spanish"));
+        assertThat(document.findFirstWhere("data.artists", Map.of("nationality", "Spanish"))).isEqualTo(first);
+        assertThat(first).containsSame(document.findFirstWhere("data.artists", Map.of("nationality", "Spanish")).get());
+        assertThat(document.findFirstWhere("data.artists", Map.of("nationality", "British"))).map(ResponseDocumentTest::id).contains("1");
+        assertThat(document.indexCount()).isEqualTo(1);
+
+        document.findFirstWhere("data.artists", Map.of("name", "Banksy"));
+        document.findFirstWhere("data.artists", Map.of("name", "Damien Hirst"));
+        assertThat(document.indexCount()).isEqualTo(2);
+    }
+}
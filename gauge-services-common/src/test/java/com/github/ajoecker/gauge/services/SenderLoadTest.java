@@ -0,0 +1,95 @@
+package com.github.ajoecker.gauge.services;
+
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SenderLoadTest {
+    private static Response responseWith(int statusCode) {
+        Response response = Mockito.mock(Response.class);
+        Mockito.when(response.statusCode()).thenReturn(statusCode);
+        return response;
+    }
+
+    @Test
+    public void allRequestsAreRecorded() {
+        Sender sender = new Sender(new VariableAccessor());
+        AtomicInteger sent = new AtomicInteger();
+        LoadResult result = sender.sendRepeatedly(100, 8, () -> {
+            int i = sent.incrementAndGet();
+            if (i % 25 == 0) {
+                throw new UncheckedIOException(new IOException("connection reset"));
+            }
+            return responseWith(i % 10 == 0 ? 500 : 200);
+        });
+        assertThat(sent.get()).isEqualTo(100);
+        assertThat(result.requests()).isEqualTo(100);
+        assertThat(result.statusCodes()).isEqualTo(Map.of(200, 88L, 500, 8L));
+        assertThat(result.errors()).isEqualTo(Map.of("UncheckedIOException", 4L));
+        assertThat(result.latencies().count()).isEqualTo(96);
+    }
+
+    @Test
+    public void concurrencyIsLimited() {
+        Sender sender = new Sender(new VariableAccessor());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        sender.sendRepeatedly(50, 4, () -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return responseWith(200);
+        });
+        assertThat(maxRunning.get()).isBetween(1, 4);
+    }
+
+    @Test
+    public void invalidArgumentsAreRejected() {
+        Sender sender = new Sender(new VariableAccessor());
+        assertThrows(IllegalArgumentException.class, () -> sender.sendRepeatedly(0, 1, () -> responseWith(200)));
+        assertThrows(IllegalArgumentException.class, () -> sender.sendRepeatedly(1, 0, () -> responseWith(200)));
+    }
+
+    @Test
+    public void latestRequestIsSampledOnce() {
+        Sender sender = new Sender(new VariableAccessor() {
+            @Override
+            public int samplingWarmup() {
+                return 2;
+            }
+
+            @Override
+            public int samplingSamples() {
+                return 5;
+            }
+        });
+        AtomicInteger sent = new AtomicInteger();
+        sender.sendRepeatedly(3, 1, () -> {
+            sent.incrementAndGet();
+            return responseWith(200);
+        });
+        assertThat(sender.sampleLatencies().count()).isEqualTo(5);
+        assertThat(sent.get()).isEqualTo(3 + 2 + 5);
+        sender.verifyPercentileInLessThan(95, 1000);
+        assertThat(sent.get()).isEqualTo(3 + 2 + 5);
+    }
+
+    @Test
+    public void unknownRequestCannotBeSampled() {
+        Sender sender = new Sender(new VariableAccessor());
+        sender.setResponse(responseWith(200));
+        assertThrows(IllegalStateException.class, sender::sampleLatencies);
+    }
+}
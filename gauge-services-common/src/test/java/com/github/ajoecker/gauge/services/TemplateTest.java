@@ -0,0 +1,57 @@
+package com.github.ajoecker.gauge.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TemplateTest {
+    private static final Map<String, Object> VALUES = Map.of("size", 4, "name", "John \"Johnny\" Doe", "id", "a-1");
+
+    private static Function<String, Optional<Object>> values(List<String> lookups) {
+        return variable -> {
+            lookups.add(variable);
+            return Optional.ofNullable(VALUES.get(variable));
+        };
+    }
+
+    @Test
+    public void variablesAreReplaced() {
+        String query = "{ artists(size: %size%, name: \"% name %\") { id } }";
+        assertThat(Template.of(query).render(values(new ArrayList<>())))
+                .isEqualTo("{ artists(size: 4, name: \"John \\\"Johnny\\\" Doe\") { id } }");
+    }
+
+    @Test
+    public void eachVariableIsLookedUpOnce() {
+        List<String> lookups = new ArrayList<>();
+        assertThat(Template.of("customers/%id%/orders/%id%?size=%size%").render(values(lookups)))
+                .isEqualTo("customers/a-1/orders/a-1?size=4");
+        assertThat(lookups).containsExactly("id", "size");
+    }
+
+    @Test
+    public void variablesDoNotSpanLines() {
+        List<String> lookups = new ArrayList<>();
+        assertThat(Template.of("100%\nof %size%").render(values(lookups))).isEqualTo("100%\nof 4");
+        assertThat(lookups).containsExactly("size");
+    }
+
+    @Test
+    public void stringWithoutVariablesIsUnchanged() {
+        String path = "shop/products/%/";
+        assertThat(Template.of(path).render(values(new ArrayList<>()))).isSameAs(path);
+    }
+
+    @Test
+    public void unknownVariableFails() {
+        assertThrows(NoSuchElementException.class, () -> Template.of("%unknown%").render(values(new ArrayList<>())));
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.ajoecker.gauge.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransportTest {
+    private static VariableAccessor transport(String transport, String httpVersion) {
+        return new VariableAccessor() {
+            @Override
+            public String transport() {
+                return transport;
+            }
+
+            @Override
+            public String httpVersion() {
+                return httpVersion;
+            }
+        };
+    }
+
+    @Test
+    public void transportIsConfigured() {
+        assertThat(Transport.of(transport("restassured", "HTTP_2"))).isInstanceOf(ConnectionPool.class);
+        assertThat(Transport.of(transport("HttpClient", "http_1_1"))).isInstanceOf(HttpClientTransport.class);
+    }
+
+    @Test
+    public void unknownTransportListsValidTransports() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Transport.of(transport("httpclinet", "HTTP_2")));
+        assertThat(e.getMessage()).isEqualTo("unknown transport 'httpclinet', valid are restassured, httpclient");
+    }
+
+    @Test
+    public void unknownHttpVersionListsValidVersions() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Transport.of(transport("httpclient", "HTTP_3")));
+        assertThat(e.getMessage()).isEqualTo("unknown http version 'HTTP_3', valid are http_1_1, http_2");
+    }
+}
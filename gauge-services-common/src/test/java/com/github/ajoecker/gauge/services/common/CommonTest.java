@@ -6,6 +6,8 @@ import io.restassured.specification.RequestSpecification;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -24,6 +26,51 @@ public class CommonTest {
         new Common().verifyStatusCode(code);
     }
 
+    @Test
+    public void timeToFirstByteIsChecked() {
+        Sender sender = new Sender(new VariableAccessor()) {
+            @Override
+            public void verifyPhaseInLessThan(RequestTiming.Phase phase, long timeout) {
+                assertEquals(RequestTiming.Phase.TTFB, phase);
+                assertEquals(200, timeout);
+            }
+        };
+        Registry.get().init("foo", sender, new Connector(sender), null);
+        new Common().timeToFirstByteInLessThanMs(200);
+    }
+
+    @Test
+    public void phaseIsChecked() {
+        Sender sender = new Sender(new VariableAccessor()) {
+            @Override
+            public void verifyPhaseInLessThan(RequestTiming.Phase phase, long timeout) {
+                assertEquals(RequestTiming.Phase.CONNECT, phase);
+                assertEquals(50, timeout);
+            }
+        };
+        Registry.get().init("foo", sender, new Connector(sender), null);
+        new Common().phaseInLessThanMs("connect", 50);
+    }
+
+    @Test
+    public void percentileIsChecked() {
+        List<Double> percentiles = new ArrayList<>();
+        Sender sender = new Sender(new VariableAccessor()) {
+            @Override
+            public void verifyPercentileInLessThan(double percentile, long timeout) {
+                assertEquals(200, timeout);
+                percentiles.add(percentile);
+            }
+        };
+        Registry.get().init("foo", sender, new Connector(sender), null);
+        Common common = new Common();
+        common.percentileInLessThanMs("p95", 200);
+        common.percentileInLessThanMs("99.9", 200);
+        common.percentileInLessThanMs("median", 200);
+        common.medianInLessThanMs(200);
+        assertEquals(List.of(95.0, 99.9, 50.0, 50.0), percentiles);
+    }
+
     @Test
     public void onlyTokenGivenIsThenUsed() {
         VariableAccessor variableAccessor = new VariableAccessor() {
@@ -0,0 +1,43 @@
+package com.github.ajoecker.gauge.services.common;
+
+import com.thoughtworks.gauge.Table;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ExpectedValuesTest {
+    @Test
+    public void values() {
+        assertThat(ExpectedValues.values("Pablo Picasso, Banksy")).containsExactly("Pablo Picasso", "Banksy");
+        assertThat(ExpectedValues.values("{name: foo, value: bar}, {name: baz, value: qux}"))
+                .containsExactly(Map.of("name", "foo", "value", "bar"), Map.of("name", "baz", "value", "qux"));
+    }
+
+    @Test
+    public void keptValuesCannotBeChanged() {
+        Object[] values = ExpectedValues.values("Pablo Picasso, Banksy");
+        values[0] = "Frida Kahlo";
+        assertThat(ExpectedValues.values("Pablo Picasso, Banksy")).containsExactly("Pablo Picasso", "Banksy");
+
+        Object[] maps = ExpectedValues.values("{name: foo}");
+        assertThrows(UnsupportedOperationException.class, () -> ((Map<String, String>) maps[0]).put("name", "bar"));
+    }
+
+    @Test
+    public void tableValues() {
+        Table table = new Table(List.of("name", "value"));
+        table.addRow(List.of("foo", "bar"));
+        AtomicReference<Object[]> values = new AtomicReference<>();
+        ExpectedValues.compare(table, values::set);
+        assertThat(values.get()).containsExactly(Map.of("name", "foo", "value", "bar"));
+
+        table.addRow(List.of("baz", "qux"));
+        ExpectedValues.compare(table, values::set);
+        assertThat(values.get()).containsExactly(Map.of("name", "foo", "value", "bar"), Map.of("name", "baz", "value", "qux"));
+    }
+}
@@ -1,16 +1,17 @@
 package com.github.ajoecker.gauge.services.common;
 
 import com.github.ajoecker.gauge.services.*;
-import io.restassured.response.ExtractableResponse;
+import com.thoughtworks.gauge.Table;
 import io.restassured.response.Response;
-import io.restassured.response.ValidatableResponse;
+import io.restassured.response.ResponseBody;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -26,14 +27,14 @@ public class ExtractTest {
 
     @Test
     public void extract() {
-        initConnector(new Connector(testVariableStorage, sender), "");
+        initConnector(new Connector(testVariableStorage, sender));
         new Common().extractPath("token", "id=5");
         assertExtractToken("foo");
     }
 
     @Test
     public void extractWIthoutAttributeMapping() {
-        initConnectorSingle(new Connector(testVariableStorage, sender), "");
+        initConnectorSingle(new Connector(testVariableStorage, sender));
         new Common().extractPath("token");
         assertExtractToken("foo");
     }
@@ -41,7 +42,7 @@ public class ExtractTest {
     @Test
     public void extractWithQueryReplacement() {
         testVariableStorage.put("id", "2");
-        initConnector(new Connector(testVariableStorage, sender), "");
+        initConnector(new Connector(testVariableStorage, sender));
         new Common().extractPath("token", "id=%id%");
         assertExtractToken("bar");
     }
@@ -69,34 +70,99 @@ public class ExtractTest {
         assertExtractToken(32.56);
     }
 
+    @Test
+    public void extractStreaming() {
+        sender = streamingSender();
+        initConnector(new Connector(testVariableStorage, sender));
+        new Common().extractPath("token", "id=2");
+        assertExtractToken("bar");
+    }
+
+    @Test
+    public void extractWithoutAttributeMappingStreaming() {
+        sender = streamingSender();
+        initConnectorSingle(new Connector(testVariableStorage, sender));
+        new Common().extractPath("token");
+        assertExtractToken("foo");
+    }
+
+    @Test
+    public void extractAllStreaming() {
+        sender = streamingSender();
+        Registry.get().init("foo", s -> new Connector(testVariableStorage, sender));
+        sender.setResponse(responseWithBody("{\"items\": [{\"id\": 5, \"token\": \"foo\"}], \"total\": 1}"));
+        Table table = new Table(List.of("path", "variable"));
+        table.addRow(List.of("items[0].token", "token"));
+        table.addRow(List.of("total", "total"));
+        new Common().extractAll(table);
+        assertExtractToken("foo");
+        assertThat(testVariableStorage.get("total")).contains(1);
+    }
+
+    @Test
+    public void extractFromMissingParentStoresNothingInBothModes() {
+        for (Sender each : List.of(new Sender(new VariableAccessor()), streamingSender())) {
+            testVariableStorage = new TestVariableStorage();
+            Registry.get().init("foo", s -> new Connector(testVariableStorage, each));
+            each.setResponse(responseWithBody("{\"customer\": {\"id\": 5}}"));
+            new Common().extractPathWithParent("id", "order");
+            assertThat(testVariableStorage.get("id")).isEmpty();
+        }
+    }
+
+    @Test
+    public void extractFromListParentFailsInBothModes() {
+        for (Sender each : List.of(new Sender(new VariableAccessor()), streamingSender())) {
+            Registry.get().init("foo", s -> new Connector(testVariableStorage, each));
+            each.setResponse(responseWithBody("{\"customers\": [{\"id\": 5}, {\"id\": 7}]}"));
+            assertThrows(ClassCastException.class, () -> new Common().extractPathWithParent("id", "customers"));
+            assertThat(testVariableStorage.get("id")).isEmpty();
+        }
+    }
+
+    @Test
+    public void extractFromParentIsTheSameInBothModes() {
+        for (Sender each : List.of(new Sender(new VariableAccessor()), streamingSender())) {
+            testVariableStorage = new TestVariableStorage();
+            Registry.get().init("foo", s -> new Connector(testVariableStorage, each));
+            each.setResponse(responseWithBody("{\"customer\": {\"id\": 5, \"address\": {\"city\": \"Berlin\"}}}"));
+            new Common().extractPathWithParentInto("address.city", "customer", "city");
+            new Common().extractPathWithParentInto("name", "customer", "name");
+            assertThat(testVariableStorage.get("city")).contains("Berlin");
+            assertThat(testVariableStorage.get("name")).isEmpty();
+            assertThrows(IllegalArgumentException.class, () -> new Common().extractPathWithParent("address", "customer"));
+        }
+    }
+
+    private Sender streamingSender() {
+        return new Sender(new VariableAccessor() {
+            @Override
+            public boolean streaming() {
+                return true;
+            }
+        });
+    }
+
     private void assertExtractToken(Object expected) {
         assertThat(testVariableStorage.get("token")).contains(expected);
     }
 
-    private void initConnector(Connector connector, String path) {
+    private void initConnector(Connector connector) {
         Registry.get().init("foo", s -> connector);
-        ExtractableResponse extractableResponse = mock(ExtractableResponse.class);
-        ValidatableResponse validatableResponse = mock(ValidatableResponse.class);
-        Response response = mock(Response.class);
-        when(response.then()).thenReturn(validatableResponse);
-        when(validatableResponse.extract()).thenReturn(extractableResponse);
-        when(extractableResponse.path(path)).thenReturn(
-                List.of(
-                        Map.of("id", "5", "token", "foo"),
-                        Map.of("id", "2", "token", "bar")
-                )
-        );
-        sender.setResponse(response);
-    }
-
-    private void initConnectorSingle(Connector connector, String path) {
+        sender.setResponse(responseWithBody("[{\"id\": \"5\", \"token\": \"foo\"}, {\"id\": \"2\", \"token\": \"bar\"}]"));
+    }
+
+    private void initConnectorSingle(Connector connector) {
         Registry.get().init("foo", s -> connector);
-        ExtractableResponse extractableResponse = mock(ExtractableResponse.class);
-        ValidatableResponse validatableResponse = mock(ValidatableResponse.class);
+        sender.setResponse(responseWithBody("{\"id\": \"5\", \"token\": \"foo\"}"));
+    }
+
+    private Response responseWithBody(String body) {
+        ResponseBody responseBody = mock(ResponseBody.class);
+        when(responseBody.asString()).thenReturn(body);
         Response response = mock(Response.class);
-        when(response.then()).thenReturn(validatableResponse);
-        when(validatableResponse.extract()).thenReturn(extractableResponse);
-        when(extractableResponse.path(path)).thenReturn(Map.of("id", "5", "token", "foo"));
-        sender.setResponse(response);
+        when(response.body()).thenReturn(responseBody);
+        when(response.asByteArray()).thenReturn(body.getBytes(StandardCharsets.UTF_8));
+        return response;
     }
 }
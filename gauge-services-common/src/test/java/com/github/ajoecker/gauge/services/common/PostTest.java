@@ -67,6 +67,24 @@ public class PostTest {
         new Common().postingWithParameters(theQuery, theTable);
     }
 
+    @Test
+    public void postAsyncReplacesVariablesAndReturnsResponse() {
+        TestVariableStorage testVariableStorage = new TestVariableStorage();
+        testVariableStorage.put("foo", "1");
+        Response response = mock(Response.class);
+        Sender sender = new Sender(new VariableAccessor()) {
+            @Override
+            public Response sendPost(AuthenticationHandler loginHandler, String endpoint, Object body) {
+                assertEquals("http://endpoint/path", endpoint);
+                assertEquals("this is 1", body);
+                return response;
+            }
+        };
+        sender.setEndpoint("http://endpoint");
+        Connector connector = new Connector(testVariableStorage, sender);
+        assertEquals(response, connector.postAsync("this is %foo%", "path", null).join());
+    }
+
     @Test
     public void postWithQueryReplacementFromLatestResponse() {
         final String theQuery = "this is %foo%";
@@ -3,6 +3,7 @@ package com.github.ajoecker.gauge.services.common;
 import com.github.ajoecker.gauge.random.data.VariableStorage;
 import com.github.ajoecker.gauge.services.*;
 import com.thoughtworks.gauge.Table;
+import io.restassured.builder.ResponseBuilder;
 import io.restassured.response.Response;
 import io.restassured.response.ResponseBody;
 import org.hamcrest.Matcher;
@@ -218,4 +219,40 @@ public class VerificationTest {
             // thats what we want
         }
     }
+
+    @Test
+    public void responseMatchesTable() {
+        Connector connector = new Connector(new TestVariableStorage(), sender);
+        sender.setResponse(jsonResponse("{\"name\": \"Pablo Picasso\", \"active\": true, \"works\": [\"Guernica\", \"Les Demoiselles\"], \"tags\": []}"));
+        Registry.get().init("foo", sender1 -> connector);
+        Table table = new Table(List.of("path", "operator", "expected"));
+        table.addRow(List.of("name", "is", "Pablo Picasso"));
+        table.addRow(List.of("name", "start with", "Pablo"));
+        table.addRow(List.of("works", "contains", "Guernica"));
+        table.addRow(List.of("works", "are", "Les Demoiselles, Guernica"));
+        table.addRow(List.of("active", "true", ""));
+        table.addRow(List.of("tags", "empty", ""));
+        new Verification().thenMatches(table);
+    }
+
+    @Test
+    public void responseMatchesTableReportsAllFailures() {
+        Connector connector = new Connector(new TestVariableStorage(), sender);
+        sender.setResponse(jsonResponse("{\"name\": \"Pablo Picasso\", \"active\": true, \"works\": [\"Guernica\"]}"));
+        Registry.get().init("foo", sender1 -> connector);
+        Table table = new Table(List.of("path", "operator", "expected"));
+        table.addRow(List.of("name", "is", "Banksy"));
+        table.addRow(List.of("works", "contains", "Guernica"));
+        table.addRow(List.of("active", "false", ""));
+        try {
+            new Verification().thenMatches(table);
+            fail("should have failed, as values are different");
+        } catch (AssertionError e) {
+            org.assertj.core.api.Assertions.assertThat(e.getMessage()).contains("name: expected is \"Banksy\"", "active: expected is <false>").doesNotContain("works");
+        }
+    }
+
+    private static Response jsonResponse(String json) {
+        return new ResponseBuilder().setStatusCode(200).setContentType("application/json").setBody(json).build();
+    }
 }
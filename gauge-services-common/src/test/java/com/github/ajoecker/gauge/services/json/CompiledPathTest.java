@@ -0,0 +1,104 @@
+package com.github.ajoecker.gauge.services.json;
+
+import io.restassured.path.json.JsonPath;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CompiledPathTest {
+    private static final String JSON = "{\"data\": {" +
+            "\"name\": \"Banksy\", \"first-name\": \"Robin\", \"age\": 45, \"rating\": 4.5, \"empty\": null," +
+            "\"artworks\": [" +
+            "{\"id\": 16507, \"title\": \"Girl with Balloon\", \"tags\": [{\"name\": \"heart\"}, {\"name\": \"red\"}], \"sold\": true}," +
+            "{\"id\": 16516, \"title\": \"Flower Thrower\", \"tags\": [{\"name\": \"riot\"}], \"sold\": false}," +
+            "{\"id\": 16520, \"title\": \"Love is in the Bin\", \"tags\": [], \"sold\": true}" +
+            "]}}";
+
+    private final JsonPath jsonPath = new JsonPath(JSON);
+
+    private Object compiled(String path) {
+        return CompiledPath.compile(path).orElseThrow().evaluate(jsonPath.get());
+    }
+
+    private void matchesGPath(String path) {
+        assertThat(compiled(path)).isEqualTo(jsonPath.get(path));
+    }
+
+    @Test
+    public void properties() {
+        matchesGPath("data.name");
+        matchesGPath("data.'first-name'");
+        matchesGPath("data.age");
+        matchesGPath("data.rating");
+        matchesGPath("data.unknown");
+        matchesGPath("data.unknown.name");
+        matchesGPath("data.empty.name");
+    }
+
+    @Test
+    public void propertiesAreCollectedOverLists() {
+        assertThat(compiled("data.artworks.title")).isEqualTo(List.of("Girl with Balloon", "Flower Thrower", "Love is in the Bin"));
+        matchesGPath("data.artworks.tags.name");
+        matchesGPath("data.artworks.unknown");
+    }
+
+    @Test
+    public void indexes() {
+        assertThat(compiled("data.artworks[1].id")).isEqualTo(16516);
+        matchesGPath("data.artworks[0].tags[1].name");
+        matchesGPath("data.artworks[3]");
+    }
+
+    @Test
+    public void filters() {
+        assertThat(compiled("data.artworks.find{ it.id == 16516 }.title")).isEqualTo("Flower Thrower");
+        matchesGPath("data.artworks.find { it.title == 'Love is in the Bin' }.id");
+        matchesGPath("data.artworks.find { it.title == \"Love is in the Bin\" }.id");
+        matchesGPath("data.artworks.findAll{ it.sold == true }.id");
+        matchesGPath("data.artworks.findAll{ it.sold == true && it.id > 16507 }.id");
+        matchesGPath("data.artworks.findAll{ it.id >= 16516 && it.id != 16520 }.title");
+        matchesGPath("data.artworks.find{ it.tags[0].name == 'riot' }.id");
+        matchesGPath("data.artworks.find{ it.id == 1 }");
+        matchesGPath("data.artworks.findAll{ it.id == 1 }");
+        matchesGPath("data.artworks.id.findAll{ it < 16520 }");
+    }
+
+    @Test
+    public void size() {
+        assertThat(compiled("data.artworks.size()")).isEqualTo(3);
+        matchesGPath("data.artworks[0].tags.size()");
+        matchesGPath("data.name.size()");
+    }
+
+    @Test
+    public void emptyPathIsRoot() {
+        assertThat(compiled("")).isEqualTo(jsonPath.get());
+    }
+
+    @Test
+    public void unsupportedExpressionsAreNotCompiled() {
+        assertThat(CompiledPath.compile("data.artworks[-1]")).isEmpty();
+        assertThat(CompiledPath.compile("data.artworks.collect{ it.id }")).isEmpty();
+        assertThat(CompiledPath.compile("data.artworks.find{ it.id == 1 || it.id == 2 }")).isEmpty();
+        assertThat(CompiledPath.compile("data.")).isEmpty();
+    }
+
+    @Test
+    public void unsupportedDocumentsAreRejected() {
+        CompiledPath path = CompiledPath.compile("data.name.length").orElseThrow();
+        assertThrows(UnsupportedOperationException.class, () -> path.evaluate(jsonPath.get()));
+        CompiledPath index = CompiledPath.compile("data.unknown[0]").orElseThrow();
+        assertThrows(UnsupportedOperationException.class, () -> index.evaluate(jsonPath.get()));
+        CompiledPath filter = CompiledPath.compile("find{ it.id == 1 }").orElseThrow();
+        assertThrows(UnsupportedOperationException.class, () -> filter.evaluate(new JsonPath("[null, {\"id\": 1}]").get()));
+    }
+
+    @Test
+    public void compiledPathsAreCached() {
+        assertThat(CompiledPath.compile("data.artworks.title").orElseThrow())
+                .isSameAs(CompiledPath.compile("data.artworks.title").orElseThrow());
+    }
+}
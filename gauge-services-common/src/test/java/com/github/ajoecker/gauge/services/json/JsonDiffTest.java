@@ -0,0 +1,81 @@
+package com.github.ajoecker.gauge.services.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonDiffTest {
+    private static final String JSON = "{\"data\": {\"total\": 3, \"name\": \"weekly\", \"closed\": false, \"owner\": null," +
+            "\"rows\": [{\"id\": 1, \"tags\": [\"a\", \"b\"]}, {\"id\": 2, \"tags\": []}]}}";
+
+    private static List<String> compare(JsonDiff diff, String expected, String actual) {
+        return diff.compare(new StringReader(expected), new StringReader(actual));
+    }
+
+    private static List<String> compare(String expected, String actual) {
+        return compare(new JsonDiff(10, List.of(), List.of()), expected, actual);
+    }
+
+    @Test
+    public void equalDocuments() {
+        assertThat(compare(JSON, JSON)).isEmpty();
+    }
+
+    @Test
+    public void membersInAnotherOrderAndNumbersByValue() {
+        String actual = "{\"data\": {\"name\": \"weekly\", \"total\": 3.0, \"rows\": [{\"tags\": [\"a\", \"b\"], \"id\": 1}," +
+                "{\"id\": 2, \"tags\": []}], \"owner\": null, \"closed\": false}}";
+        assertThat(compare(JSON, actual)).isEmpty();
+    }
+
+    @Test
+    public void reportsPathsOfDifferences() {
+        String actual = "{\"data\": {\"total\": 4, \"name\": \"weekly\", \"closed\": \"false\", \"owner\": {}," +
+                "\"rows\": [{\"id\": 1, \"tags\": [\"a\"]}, {\"id\": 2, \"tags\": [], \"extra\": true}]}}";
+        assertThat(compare(JSON, actual)).containsExactly(
+                "$.data.total: expected 3, but was 4",
+                "$.data.closed: expected false, but was \"false\"",
+                "$.data.owner: expected a null, but was an object",
+                "$.data.rows[0].tags: expected 2 elements, but was 1",
+                "$.data.rows[1].extra: is unexpected");
+    }
+
+    @Test
+    public void reportsMissingMembers() {
+        assertThat(compare("{\"a\": 1, \"b\": 2, \"c\": 3}", "{\"a\": 1, \"c\": 3}")).containsExactly("$.b: is missing");
+    }
+
+    @Test
+    public void stopsAfterMaximalDifferences() {
+        assertThat(compare(new JsonDiff(2, List.of(), List.of()), "[1, 2, 3, 4]", "[5, 6, 7, 8]"))
+                .containsExactly("$[0]: expected 1, but was 5", "$[1]: expected 2, but was 6");
+    }
+
+    @Test
+    public void ignoresPaths() {
+        JsonDiff diff = new JsonDiff(10, List.of("data.rows[*].id", "$.data.total"), List.of());
+        String actual = JSON.replace("\"id\": 1", "\"id\": 7").replace("\"total\": 3", "\"total\": 9");
+        assertThat(compare(diff, JSON, actual)).isEmpty();
+        assertThat(compare(diff, JSON, JSON.replace("\"total\": 3, ", ""))).isEmpty();
+    }
+
+    @Test
+    public void comparesUnorderedArrays() {
+        JsonDiff diff = new JsonDiff(10, List.of(), List.of("data.rows", "data.rows[*].tags"));
+        String actual = "{\"data\": {\"total\": 3, \"name\": \"weekly\", \"closed\": false, \"owner\": null," +
+                "\"rows\": [{\"id\": 2, \"tags\": []}, {\"id\": 1, \"tags\": [\"b\", \"a\"]}]}}";
+        assertThat(compare(diff, JSON, actual)).isEmpty();
+        assertThat(compare(diff, JSON, actual.replace("\"id\": 2", "\"id\": 3"))).containsExactly(
+                "$.data.rows[1]: expected element {\"id\":2,\"tags\":[]} is not found",
+                "$.data.rows[0]: unexpected element {\"id\":3,\"tags\":[]}");
+    }
+
+    @Test
+    public void failsOnInvalidJson() {
+        assertThrows(IllegalArgumentException.class, () -> compare("{\"a\": ", "{\"a\": 1}"));
+    }
+}
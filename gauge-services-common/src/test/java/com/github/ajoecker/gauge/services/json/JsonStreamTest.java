@@ -0,0 +1,77 @@
+package com.github.ajoecker.gauge.services.json;
+
+import io.restassured.path.json.JsonPath;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonStreamTest {
+    private static final String JSON = "{\"data\": {" +
+            "\"report\": {\"total\": 3, \"average\": 4.5, \"big\": 12345678901, \"name\": \"weekly\", \"closed\": false, \"owner\": null}," +
+            "\"rows\": [" +
+            "{\"id\": 1, \"name\": \"first\", \"values\": [1, 2]}," +
+            "{\"id\": 2, \"name\": \"second\", \"values\": []}," +
+            "{\"id\": 3, \"name\": \"third\", \"values\": [3]}" +
+            "]}}";
+
+    private static InputStream json() {
+        return new ByteArrayInputStream(JSON.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void readsValuesLikeJsonPath() {
+        List<String> paths = List.of("data.report.total", "data.report.average", "data.report.big", "data.report.name",
+                "data.report.closed", "data.report.owner", "data.rows[1].name", "data.rows[0].values", "data.report");
+        Map<String, Object> values = JsonStream.read(json(), paths);
+        JsonPath jsonPath = new JsonPath(JSON);
+        paths.forEach(path -> assertThat(values.get(path)).as(path).isEqualTo(jsonPath.get(path)));
+    }
+
+    @Test
+    public void objectsKeepTheOrderOfTheirMembers() {
+        Map<String, Object> values = JsonStream.read(json(), List.of("data.report", "data.rows[0]"));
+        assertThat(String.valueOf(((Map<?, ?>) values.get("data.report")).keySet())).isEqualTo("[total, average, big, name, closed, owner]");
+        assertThat(String.valueOf(values.get("data.rows[0]"))).isEqualTo("{id=1, name=first, values=[1, 2]}");
+    }
+
+    @Test
+    public void readsPathsBelowAnotherRequestedPath() {
+        Map<String, Object> values = JsonStream.read(json(), List.of("data.rows[2]", "data.rows[2].values[0]"));
+        assertThat(values).containsEntry("data.rows[2].values[0]", 3);
+    }
+
+    @Test
+    public void pathsThatCannotBeStreamedAreMissing() {
+        Map<String, Object> values = JsonStream.read(json(), List.of("data.rows.name", "data.rows.find{ it.id == 2 }",
+                "data.report.unknown", "data.rows[5]", "data.report.total"));
+        assertThat(values).containsOnlyKeys("data.report.total");
+    }
+
+    @Test
+    public void stopsReadingWhenAllValuesAreFound() {
+        String truncated = JSON.substring(0, JSON.indexOf("\"rows\""));
+        Map<String, Object> values = JsonStream.read(new ByteArrayInputStream(truncated.getBytes(StandardCharsets.UTF_8)),
+                List.of("data.report.name"));
+        assertThat(values).containsEntry("data.report.name", "weekly");
+    }
+
+    @Test
+    public void findsFirstMatchingElement() {
+        assertThat(JsonStream.findFirst(json(), "data.rows", row -> ((Map<?, ?>) row).get("id").equals(2)))
+                .contains(Map.of("id", 2, "name", "second", "values", List.of()));
+        assertThat(JsonStream.findFirst(json(), "data.rows", row -> false)).isEmpty();
+    }
+
+    @Test
+    public void findFirstRequiresAnArray() {
+        assertThrows(UnsupportedOperationException.class, () -> JsonStream.findFirst(json(), "data.report", row -> true));
+        assertThrows(UnsupportedOperationException.class, () -> JsonStream.findFirst(json(), "data.unknown", row -> true));
+    }
+}
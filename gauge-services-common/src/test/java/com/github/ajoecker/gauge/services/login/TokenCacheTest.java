@@ -0,0 +1,141 @@
+package com.github.ajoecker.gauge.services.login;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenCacheTest {
+    private final MovingClock clock = new MovingClock();
+    private final AtomicInteger logins = new AtomicInteger();
+
+    private static String jwt(long exp) {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + encoder.encodeToString(("{\"sub\":\"user\",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8)) + ".signature";
+    }
+
+    private Supplier<TokenCache.Login> login(String token, Object expiresIn) {
+        return () -> {
+            logins.incrementAndGet();
+            return new TokenCache.Login(token, expiresIn);
+        };
+    }
+
+    @Test
+    public void jwtIsRefreshedBeforeItExpires() {
+        TokenCache cache = new TokenCache(30_000, null, clock);
+        String token = jwt(clock.instant().getEpochSecond() + 120);
+        assertThat(cache.token("user", login(token, null))).isEqualTo(token);
+        clock.advance(89_000);
+        assertThat(cache.token("user", login("other", null))).isEqualTo(token);
+        assertThat(logins.get()).isEqualTo(1);
+        clock.advance(2_000);
+        assertThat(cache.token("user", login("other", null))).isEqualTo("other");
+        assertThat(logins.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void expiryIsReadFromResponse() {
+        TokenCache cache = new TokenCache(0, null, clock);
+        cache.token("user", login("first", 60));
+        clock.advance(59_000);
+        assertThat(cache.token("user", login("second", 60))).isEqualTo("first");
+        clock.advance(1_000);
+        assertThat(cache.token("user", login("second", 60))).isEqualTo("second");
+    }
+
+    @Test
+    public void tokenWithoutExpiryIsKept() {
+        TokenCache cache = new TokenCache(30_000, null, clock);
+        cache.token("user", login("first", null));
+        clock.advance(TimeUnit.DAYS.toMillis(1));
+        assertThat(cache.token("user", login("second", null))).isEqualTo("first");
+        assertThat(cache.token("admin", login("third", null))).isEqualTo("third");
+        assertThat(logins.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void concurrentRefreshesSendOneLogin() throws Exception {
+        TokenCache cache = new TokenCache(30_000, null, clock);
+        CountDownLatch waiting = new CountDownLatch(1);
+        Supplier<TokenCache.Login> slowLogin = () -> {
+            logins.incrementAndGet();
+            try {
+                waiting.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TokenCache.Login("token", 3600);
+        };
+        List<CompletableFuture<String>> tokens = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tokens.add(CompletableFuture.supplyAsync(() -> cache.token("user", slowLogin)));
+        }
+        Thread.sleep(100);
+        waiting.countDown();
+        for (CompletableFuture<String> token : tokens) {
+            assertThat(token.get(5, TimeUnit.SECONDS)).isEqualTo("token");
+        }
+        assertThat(logins.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void failedLoginIsNotCached() {
+        TokenCache cache = new TokenCache(30_000, null, clock);
+        assertThrows(IllegalStateException.class, () -> cache.token("user", login(null, null)));
+        assertThat(cache.token("user", login("token", null))).isEqualTo("token");
+    }
+
+    @Test
+    public void storedTokensSurviveUntilTheyExpire() throws IOException {
+        Path store = Files.createTempDirectory("tokens").resolve("tokens.properties");
+        new TokenCache(30_000, store, clock).token("user", login("stored", 3600));
+        assertThat(Files.readString(store)).doesNotContain("user");
+        assertThat(new TokenCache(30_000, store, clock).token("user", login("fresh", 3600))).isEqualTo("stored");
+        clock.advance(TimeUnit.HOURS.toMillis(1));
+        assertThat(new TokenCache(30_000, store, clock).token("user", login("fresh", 3600))).isEqualTo("fresh");
+        assertThat(logins.get()).isEqualTo(2);
+    }
+
+    private static final class MovingClock extends Clock {
+        private final AtomicLong millis = new AtomicLong(1_600_000_000_000L);
+
+        void advance(long delta) {
+            millis.addAndGet(delta);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+    }
+}